@@ -3,6 +3,7 @@ package com.tech.apicargamasiva.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tech.apicargamasiva.util.ConversorMensajesBinario;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
@@ -21,8 +22,15 @@ public class RabbitMQConfig {
 
     // Constantes de nombres
     public static final String EXCHANGE = "importacion.exchange";
-    public static final String QUEUE = "importacion.chunk.queue";
-    public static final String ROUTING_KEY = "importacion.chunk";
+    public static final String QUEUE = "importacion.chunk.queue.v2";
+    public static final String ROUTING_KEY = "importacion.chunk.v2";
+
+    // Cola de chunks anterior (TTL de 1 hora, sin prioridades ni reject-publish). RabbitMQ no
+    // permite redeclarar una cola con otros argumentos, así que la nueva tiene otro nombre y
+    // otra routing key; esta se sigue consumiendo para drenar lo que publiquen los nodos
+    // anteriores durante el despliegue. Una vez vacía y sin nodos viejos se puede borrar.
+    public static final String QUEUE_ANTERIOR = "importacion.chunk.queue";
+    public static final String ROUTING_KEY_ANTERIOR = "importacion.chunk";
 
     // Dead Letter Queue
     public static final String DLX = "importacion.dlx";
@@ -42,6 +50,20 @@ public class RabbitMQConfig {
     @Value("${spring.rabbitmq.listener.simple.prefetch:5}")
     private int prefetch;
 
+    @Value("${importacion.lote.tamano:10}")
+    private int tamanoLote;
+
+    @Value("${importacion.lote.espera-ms:200}")
+    private long esperaLoteMs;
+
+    // Niveles de prioridad de la cola de chunks (ver PlanificadorChunks)
+    @Value("${importacion.planificador.max-prioridad:10}")
+    private int maxPrioridad;
+
+    // false: los chunks se publican en JSON (mientras queden consumers de la versión anterior)
+    @Value("${importacion.codec.binario:false}")
+    private boolean codecBinario;
+
     /**
      * Configuración del ObjectMapper para serialización JSON
      */
@@ -55,11 +77,11 @@ public class RabbitMQConfig {
     }
 
     /**
-     * Conversor de mensajes a JSON
+     * Conversor de mensajes: ChunkMessage en binario, el resto en JSON
      */
     @Bean
     public MessageConverter messageConverter(ObjectMapper objectMapper) {
-        return new Jackson2JsonMessageConverter(objectMapper);
+        return new ConversorMensajesBinario(new Jackson2JsonMessageConverter(objectMapper), codecBinario);
     }
 
     /**
@@ -73,7 +95,8 @@ public class RabbitMQConfig {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(messageConverter);
 
-        // Confirmaciones de publicación (requiere configuración en application.yml)
+        // Confirmaciones y devoluciones de publicación (publisher-confirm-type y publisher-returns
+        // en application.yml); PublicadorChunks reintenta lo que el broker no acepta
         template.setMandatory(true);
 
         return template;
@@ -118,6 +141,66 @@ public class RabbitMQConfig {
         return factory;
     }
 
+    /**
+     * Factory para el listener del pipeline: el método devuelve un CompletableFuture que termina
+     * después de escribir el chunk, y el contenedor hace el ack (o el nack a la DLQ) recién
+     * entonces. Por eso el ack es manual: con AUTO el mensaje se reconocería al devolver el futuro
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory etapasListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter) {
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConcurrency);
+        factory.setPrefetchCount(prefetch);
+
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setDefaultRequeueRejected(false);
+
+        factory.setErrorHandler(t -> {
+            log.error("Error en listener del pipeline de RabbitMQ: {}", t.getMessage(), t);
+        });
+
+        return factory;
+    }
+
+    /**
+     * Factory para el listener en modo lote: entrega hasta tamanoLote chunks por invocación, o
+     * los que hayan llegado tras esperaLoteMs, y hace un solo ack por lote
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory loteListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter) {
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConcurrency);
+
+        // El prefetch debe alcanzar para llenar un lote
+        factory.setPrefetchCount(Math.max(prefetch, tamanoLote));
+
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanoLote);
+        factory.setReceiveTimeout(esperaLoteMs);
+
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setDefaultRequeueRejected(false);
+
+        factory.setErrorHandler(t -> {
+            log.error("Error en listener de lotes de RabbitMQ: {}", t.getMessage(), t);
+        });
+
+        return factory;
+    }
+
     // ==========================================
     // EXCHANGES
     // ==========================================
@@ -143,7 +226,12 @@ public class RabbitMQConfig {
     // ==========================================
 
     /**
-     * Cola principal de procesamiento con DLQ configurado
+     * Cola principal de procesamiento con DLQ configurado.
+     *
+     * Sin TTL y con reject-publish: al llegar al máximo el broker rechaza la publicación (nack)
+     * en lugar de descartar o mandar a la DLQ chunks ya encolados, y el publicador reintenta.
+     * Con prioridades, para que los chunks de jobs chicos se entreguen antes.
+     * Cambiar estos argumentos exige una cola con otro nombre (ver {@link #QUEUE_ANTERIOR}).
      */
     @Bean
     public Queue queue() {
@@ -151,6 +239,22 @@ public class RabbitMQConfig {
                 .durable(QUEUE)
                 .withArgument("x-dead-letter-exchange", DLX)
                 .withArgument("x-dead-letter-routing-key", DLQ_ROUTING_KEY)
+                .withArgument("x-max-length", 100000) // Máximo 100k mensajes
+                .withArgument("x-overflow", "reject-publish")
+                .withArgument("x-max-priority", maxPrioridad)
+                .build();
+    }
+
+    /**
+     * Cola de chunks anterior, declarada con sus argumentos originales para que coincida con
+     * la que ya existe en el broker (ver {@link #QUEUE_ANTERIOR})
+     */
+    @Bean
+    public Queue queueAnterior() {
+        return QueueBuilder
+                .durable(QUEUE_ANTERIOR)
+                .withArgument("x-dead-letter-exchange", DLX)
+                .withArgument("x-dead-letter-routing-key", DLQ_ROUTING_KEY)
                 .withArgument("x-message-ttl", 3600000) // 1 hora
                 .withArgument("x-max-length", 100000) // Máximo 100k mensajes
                 .build();
@@ -189,6 +293,14 @@ public class RabbitMQConfig {
                 .with(ROUTING_KEY);
     }
 
+    @Bean
+    public Binding bindingAnterior(Queue queueAnterior, DirectExchange exchange) {
+        return BindingBuilder
+                .bind(queueAnterior)
+                .to(exchange)
+                .with(ROUTING_KEY_ANTERIOR);
+    }
+
     @Bean
     public Binding dlqBinding(Queue dlq, DirectExchange dlx) {
         return BindingBuilder
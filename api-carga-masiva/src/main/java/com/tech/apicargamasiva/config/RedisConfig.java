@@ -3,6 +3,7 @@ package com.tech.apicargamasiva.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tech.apicargamasiva.util.SerializadorRedisCbor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
@@ -15,7 +16,7 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -40,6 +41,11 @@ public class RedisConfig {
     @Value("${spring.data.redis.database:0}")
     private int redisDatabase;
 
+    // false: se sigue escribiendo JSON (los valores CBOR y JSON se leen igual en ambos casos).
+    // Pasar a true solo cuando todos los nodos lean CBOR
+    @Value("${importacion.codec.binario:false}")
+    private boolean codecBinario;
+
     /**
      * Factory de conexión Redis
      */
@@ -70,7 +76,6 @@ public class RedisConfig {
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         return mapper;
     }
 
@@ -85,8 +90,7 @@ public class RedisConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
-        GenericJackson2JsonRedisSerializer serializer =
-                new GenericJackson2JsonRedisSerializer(redisObjectMapper);
+        SerializadorRedisCbor serializer = new SerializadorRedisCbor(redisObjectMapper, codecBinario);
 
         // Serializers
         template.setKeySerializer(new StringRedisSerializer());
@@ -102,6 +106,20 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Contenedor de listeners de pub/sub (archivos liberados e invalidación del near cache de
+     * estado de jobs)
+     */
+    @Bean
+    public RedisMessageListenerContainer redisListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+
+        log.info("✅ RedisMessageListenerContainer configurado");
+
+        return container;
+    }
+
     /**
      * Cache Manager con diferentes TTLs por cache
      */
@@ -110,8 +128,7 @@ public class RedisConfig {
             RedisConnectionFactory connectionFactory,
             ObjectMapper redisObjectMapper) {
 
-        GenericJackson2JsonRedisSerializer serializer =
-                new GenericJackson2JsonRedisSerializer(redisObjectMapper);
+        SerializadorRedisCbor serializer = new SerializadorRedisCbor(redisObjectMapper, codecBinario);
 
         // Configuración por defecto
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
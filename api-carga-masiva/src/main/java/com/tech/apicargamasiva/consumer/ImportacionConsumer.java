@@ -3,29 +3,26 @@ package com.tech.apicargamasiva.consumer;
 import com.tech.apicargamasiva.config.RabbitMQConfig;
 import com.tech.apicargamasiva.dto.ChunkMessage;
 import com.tech.apicargamasiva.dto.ImportacionErrorDTO;
-import com.tech.apicargamasiva.dto.JobStatusDTO;
-import com.tech.apicargamasiva.dto.SueldoDTO;
+import com.tech.apicargamasiva.dto.ResultadoValidacion;
+import com.tech.apicargamasiva.dto.SueldoChunk;
 import com.tech.apicargamasiva.model.ImportacionJob;
 import com.tech.apicargamasiva.repository.ImportacionErrorRepository;
-import com.tech.apicargamasiva.repository.ImportacionJobRepository;
 import com.tech.apicargamasiva.service.*;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.RetryRegistry;
 import io.github.resilience4j.retry.annotation.Retry;
-import jakarta.transaction.Transactional;
-import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.file.Paths;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
@@ -34,17 +31,24 @@ public class ImportacionConsumer {
     @Autowired
     private ExcelService excelService;
 
+    @Autowired
+    private SpillService spillService;
+
+    @Autowired
+    private CsvService csvService;
+
     @Autowired
     private ValidacionService validacionService;
 
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private EscritorSueldos escritorSueldos;
 
     @Autowired
     private ImportacionService importacionService;
 
     @Autowired
-    private ImportacionJobRepository jobRepository;
+    private ProgresoService progresoService;
+
 
     @Autowired
     private ImportacionErrorService importacionErrorService;
@@ -52,7 +56,23 @@ public class ImportacionConsumer {
     @Autowired
     private EmailService emailService;
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE, concurrency = "5-10")
+    @Autowired
+    private PipelineChunks pipeline;
+
+    @Autowired
+    private ControladorChunks controladorChunks;
+
+    @Autowired
+    private LimpiezaArchivos limpiezaArchivos;
+
+    @Autowired
+    private RetryRegistry retryRegistry;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @RabbitListener(queues = {RabbitMQConfig.QUEUE, RabbitMQConfig.QUEUE_ANTERIOR}, concurrency = "5-10",
+            autoStartup = "#{!${importacion.lote.enabled:false} && !${importacion.pipeline.enabled:false}}")
     @Retry(name = "importacionRetry", fallbackMethod = "procesarChunkFallback")
     @CircuitBreaker(name = "importacionCB", fallbackMethod = "procesarChunkFallback")
     @Bulkhead(name = "importacionBulkhead")
@@ -63,181 +83,309 @@ public class ImportacionConsumer {
                 chunk.getJobId(), chunk.getStartRow(), chunk.getEndRow());
 
         try {
-            // 1. Leer chunk del Excel
-            List<SueldoDTO> sueldos = excelService.leerChunk(
-                    Paths.get(chunk.getFilePath()),
-                    chunk.getStartRow(),
-                    chunk.getEndRow()
-            );
+            PipelineChunks.TrabajoChunk trabajo = pipeline.trabajoDelHilo();
+            preparar(chunk, trabajo);
+            escribir(chunk, trabajo);
 
-            if (sueldos.isEmpty()) {
-                log.warn("⚠️ Chunk vacío para job {}", chunk.getJobId());
-                return;
-            }
+            long duration = System.currentTimeMillis() - startTime;
+            // Las filas leídas, no el rango: un chunk con filas vacías o el último del archivo
+            // trae menos, y el tamaño adaptativo se calcula con este dato
+            int filas = trabajo.getSueldos().size();
+            controladorChunks.registrar(filas, TimeUnit.MILLISECONDS.toNanos(duration));
+            log.info("⏱️ Chunk procesado en {} ms ({} reg/seg)",
+                    duration, (filas * 1000.0) / Math.max(duration, 1));
 
-            // 2. Validar y separar válidos de inválidos
-            List<SueldoDTO> validos = new ArrayList<>();
-            List<ImportacionErrorDTO> errores = new ArrayList<>();
+        } catch (Exception e) {
+            log.error("💥 Error crítico procesando chunk del job {}: {}",
+                    chunk.getJobId(), e.getMessage(), e);
+            throw new RuntimeException("Error procesando chunk", e);
+        }
+    }
 
-            for (int i = 0; i < sueldos.size(); i++) {
-                SueldoDTO sueldo = sueldos.get(i);
-                int rowNumber = chunk.getStartRow() + i;
+    /**
+     * Modo pipeline ({@code importacion.pipeline.enabled}): este hilo lee y valida el chunk y la
+     * escritura sigue en la etapa de escritura de {@link PipelineChunks}. El contenedor reconoce
+     * el mensaje cuando el futuro termina, es decir, después de escribir.
+     *
+     * Reintentos y circuit breaker envuelven solo la escritura, que es lo que puede fallar por la
+     * base; si se agotan (o falla la lectura) el job queda en error como en el modo normal y el
+     * mensaje se reconoce igual. Este método no lanza: con ack manual, un mensaje que no se
+     * reconoce ni se rechaza queda tomado por el consumer hasta que se cierre el canal.
+     */
+    @RabbitListener(queues = {RabbitMQConfig.QUEUE, RabbitMQConfig.QUEUE_ANTERIOR},
+            containerFactory = "etapasListenerContainerFactory",
+            autoStartup = "#{${importacion.pipeline.enabled:false} && !${importacion.lote.enabled:false}}")
+    public CompletableFuture<Void> procesarChunkEnEtapas(ChunkMessage chunk) {
+        log.info("📦 Procesando chunk del job {}: filas {} a {}",
+                chunk.getJobId(), chunk.getStartRow(), chunk.getEndRow());
 
-                try {
-                    validacionService.validarSueldo(sueldo);
-                    validos.add(sueldo);
-                } catch (ValidationException e) {
-                    ImportacionErrorDTO error = ImportacionErrorDTO.builder()
-                            .jobId(chunk.getJobId())
-                            .rowNumber(rowNumber)
-                            .numeroEmpleado(sueldo.getNumeroEmpleado())
-                            .errorMessage(e.getMessage())
-                            .errorType("VALIDATION_ERROR")
-                            .rawData(convertirAMap(sueldo))
-                            .retryable(false)
-                            .build();
-                    errores.add(error);
-
-                    log.debug("❌ Validación fallida en fila {}: {}", rowNumber, e.getMessage());
-                } catch (Exception e) {
-                    log.error("⚠️ Error inesperado validando fila {}: {}", rowNumber, e.getMessage());
-                }
-            }
+        try {
+            return pipeline.procesar(chunk, this::preparar, this::escribirConReintentos)
+                    .handle((medicion, error) -> {
+                        if (error != null) {
+                            procesarChunkFallback(chunk, PipelineChunks.causa(error));
+                            return null;
+                        }
+                        controladorChunks.registrar(medicion.filas(), medicion.nanos());
+                        long ms = TimeUnit.NANOSECONDS.toMillis(medicion.nanos());
+                        log.info("⏱️ Chunk procesado en {} ms ({} reg/seg)",
+                                ms, (medicion.filas() * 1000.0) / Math.max(ms, 1));
+                        return null;
+                    });
+        } catch (Exception e) {
+            procesarChunkFallback(chunk, e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
 
-            // 3. Bulk insert de registros válidos
-            int insertados = 0;
-            if (!validos.isEmpty()) {
-                insertados = bulkInsert(validos);
-                log.info("✅ Insertados {} de {} registros válidos del chunk",
-                        insertados, validos.size());
-            }
+    /**
+     * Modo lote ({@code importacion.lote.enabled}): el contenedor entrega hasta N chunks (o los
+     * que lleguen en T ms) y el ack es por lote. Los chunks de un mismo job se leen sobre un solo
+     * buffer, se validan juntos y se escriben con una sola llamada al escritor (una transacción).
+     *
+     * Reintentos y circuit breaker van por job dentro del lote: si un job falla después de los
+     * reintentos, solo ese job queda en error y los demás del lote siguen normalmente.
+     */
+    @RabbitListener(queues = {RabbitMQConfig.QUEUE, RabbitMQConfig.QUEUE_ANTERIOR},
+            containerFactory = "loteListenerContainerFactory",
+            autoStartup = "${importacion.lote.enabled:false}")
+    @Bulkhead(name = "importacionBulkhead")
+    public void procesarLote(List<ChunkMessage> chunks) {
+        long startTime = System.currentTimeMillis();
 
-            // 4. Guardar errores en batch
-            if (!errores.isEmpty()) {
-                importacionErrorService.guardarErrores(errores);
-                log.warn("⚠️ Guardados {} errores del chunk", errores.size());
+        log.info("📦 Procesando lote de {} chunks", chunks.size());
+
+        try {
+            Map<String, List<ChunkMessage>> porJob = new LinkedHashMap<>();
+            for (ChunkMessage chunk : chunks) {
+                porJob.computeIfAbsent(chunk.getJobId(), id -> new ArrayList<>()).add(chunk);
             }
 
-            // 5. Actualizar progreso del job
-            actualizarProgresoJob(chunk.getJobId(), sueldos.size(), insertados, errores.size());
+            io.github.resilience4j.retry.Retry retry = retryRegistry.retry("importacionRetry");
+            io.github.resilience4j.circuitbreaker.CircuitBreaker circuitBreaker =
+                    circuitBreakerRegistry.circuitBreaker("importacionCB");
 
-            // 6. Verificar si es el último chunk y notificar
-            verificarFinalizacion(chunk);
+            int filas = 0;
+            for (List<ChunkMessage> delJob : porJob.values()) {
+                try {
+                    filas += retry.executeCheckedSupplier(() -> circuitBreaker.executeCheckedSupplier(() -> {
+                        PipelineChunks.TrabajoChunk trabajo = pipeline.trabajoDelHilo();
+                        procesarChunksDeJob(delJob, trabajo);
+                        return trabajo.getSueldos().size();
+                    }));
+                } catch (Throwable t) {
+                    Exception causa = t instanceof Exception ex ? ex : new RuntimeException(t);
+                    procesarLoteFallback(delJob, causa);
+                }
+            }
 
             long duration = System.currentTimeMillis() - startTime;
-            log.info("⏱️ Chunk procesado en {} ms ({} reg/seg)",
-                    duration, (sueldos.size() * 1000.0) / duration);
+            controladorChunks.registrar(filas, TimeUnit.MILLISECONDS.toNanos(duration));
+
+            log.info("⏱️ Lote de {} chunks procesado en {} ms", chunks.size(), duration);
 
         } catch (Exception e) {
-            log.error("💥 Error crítico procesando chunk del job {}: {}",
-                    chunk.getJobId(), e.getMessage(), e);
-            throw new RuntimeException("Error procesando chunk", e);
+            log.error("💥 Error crítico procesando lote de {} chunks: {}", chunks.size(), e.getMessage(), e);
+            throw new RuntimeException("Error procesando lote de chunks", e);
         }
     }
 
-    @Transactional
-    public int bulkInsert(List<SueldoDTO> sueldos) {
-        String sql = """
-            INSERT INTO sueldos 
-            (numero_empleado, nombre_completo, puesto, salario_base, bonos, 
-             deducciones, salario_neto, periodo_pago, fecha_pago, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            ON CONFLICT (numero_empleado, periodo_pago) 
-            DO UPDATE SET 
-                nombre_completo = EXCLUDED.nombre_completo,
-                puesto = EXCLUDED.puesto,
-                salario_base = EXCLUDED.salario_base,
-                bonos = EXCLUDED.bonos,
-                deducciones = EXCLUDED.deducciones,
-                salario_neto = EXCLUDED.salario_neto,
-                fecha_pago = EXCLUDED.fecha_pago,
-                updated_at = EXCLUDED.updated_at
-            """;
-
-        int[] results = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
-                SueldoDTO sueldo = sueldos.get(i);
-                LocalDateTime now = LocalDateTime.now();
-
-                ps.setString(1, sueldo.getNumeroEmpleado());
-                ps.setString(2, sueldo.getNombreCompleto());
-                ps.setString(3, sueldo.getPuesto());
-                ps.setBigDecimal(4, sueldo.getSalarioBase());
-                ps.setBigDecimal(5, sueldo.getBonos());
-                ps.setBigDecimal(6, sueldo.getDeducciones());
-                ps.setBigDecimal(7, sueldo.getSalarioNeto());
-                ps.setString(8, sueldo.getPeriodoPago());
-                ps.setObject(9, sueldo.getFechaPago());
-                ps.setObject(10, now);
-                ps.setObject(11, now);
-            }
+    private void procesarChunksDeJob(List<ChunkMessage> chunks, PipelineChunks.TrabajoChunk trabajo)
+            throws IOException {
+        SueldoChunk sueldos = trabajo.getSueldos();
+
+        // limites[k]..limites[k+1] son las filas del chunk k dentro del buffer
+        int[] limites = new int[chunks.size() + 1];
+        for (int k = 0; k < chunks.size(); k++) {
+            leerChunk(chunks.get(k), sueldos);
+            limites[k + 1] = sueldos.size();
+        }
+
+        // Todos comparten job (y por lo tanto archivo y duplicados): el primero sirve de referencia
+        ChunkMessage referencia = chunks.get(0);
+        validar(referencia, trabajo);
+
+        if (sueldos.contarValidas() > 0) {
+            int insertados = escritorSueldos.escribir(referencia.getJobId(), sueldos);
+            log.info("✅ Insertados {} de {} registros válidos de {} chunks",
+                    insertados, sueldos.contarValidas(), chunks.size());
+        }
 
-            @Override
-            public int getBatchSize() {
-                return sueldos.size();
+        List<ImportacionErrorDTO> errores = trabajo.getErrores();
+        if (!errores.isEmpty()) {
+            importacionErrorService.guardarErrores(errores);
+            log.warn("⚠️ Guardados {} errores del lote", errores.size());
+        }
+
+        // El progreso se sigue contando por chunk: es lo que hace idempotente una reentrega
+        for (int k = 0; k < chunks.size(); k++) {
+            int validas = 0;
+            for (int i = limites[k]; i < limites[k + 1]; i++) {
+                if (sueldos.isValida(i)) {
+                    validas++;
+                }
             }
-        });
+            int filas = limites[k + 1] - limites[k];
+            terminarChunk(chunks.get(k), filas, validas, filas - validas);
+        }
+    }
 
-        return Arrays.stream(results).sum();
+    /**
+     * Falla de los chunks de un solo job dentro de un lote: el job queda en error una sola vez.
+     */
+    public void procesarLoteFallback(List<ChunkMessage> chunks, Exception e) {
+        procesarChunkFallback(chunks.get(0), e);
     }
 
-    @Transactional
-    protected synchronized void actualizarProgresoJob(String jobId, int procesados,
-                                                      int exitosos, int errores) {
-        try {
-            ImportacionJob job = jobRepository.findById(jobId)
-                    .orElseThrow(() -> new RuntimeException("Job no encontrado: " + jobId));
-
-            job.incrementarProcesados(exitosos, errores);
-            jobRepository.save(job);
-
-            // Notificar progreso via WebSocket
-            importacionService.actualizarJob(
-                    jobId,
-                    job.getStatus(),
-                    job.getTotalRegistros(),
-                    job.getProcesados(),
-                    job.getExitosos(),
-                    job.getErrores()
-            );
+    /**
+     * Etapa 1: leer el chunk (spill pre-dividido, CSV indexado o Excel original) y validarlo.
+     */
+    private void preparar(ChunkMessage chunk, PipelineChunks.TrabajoChunk trabajo) throws IOException {
+        leerChunk(chunk, trabajo.getSueldos());
+        validar(chunk, trabajo);
+    }
+
+    /**
+     * Validar el chunk completo (incluye duplicados en el archivo) y marcar inválidos.
+     */
+    private void validar(ChunkMessage chunk, PipelineChunks.TrabajoChunk trabajo) throws IOException {
+        SueldoChunk sueldos = trabajo.getSueldos();
+        if (sueldos.isEmpty()) {
+            return;
+        }
 
-            log.debug("📊 Progreso actualizado: {}/{} ({:.1f}%)",
-                    job.getProcesados(),
-                    job.getTotalRegistros(),
-                    job.calcularProgreso());
+        ResultadoValidacion resultado = validacionService.validarChunk(
+                sueldos, trabajo.getResultado(), filasDuplicadas(chunk));
+        List<ImportacionErrorDTO> errores = trabajo.getErrores();
 
-        } catch (Exception e) {
-            log.error("Error actualizando progreso del job {}: {}", jobId, e.getMessage());
+        for (int i = 0; i < sueldos.size(); i++) {
+            if (!resultado.tieneErrores(i)) {
+                continue;
+            }
+
+            sueldos.marcarInvalida(i);
+            String mensaje = resultado.mensaje(i);
+
+            ImportacionErrorDTO error = ImportacionErrorDTO.builder()
+                    .jobId(chunk.getJobId())
+                    .rowNumber(sueldos.getFila(i))
+                    .numeroEmpleado(sueldos.getNumeroEmpleado(i))
+                    .errorMessage(mensaje)
+                    .errorType(validacionService.tipoError(resultado, i))
+                    .rawData(sueldos.aMapa(i))
+                    .retryable(false)
+                    .build();
+            errores.add(error);
+
+            log.debug("❌ Validación fallida en fila {}: {}", sueldos.getFila(i), mensaje);
         }
     }
 
-    protected void verificarFinalizacion(ChunkMessage chunk) {
+    /**
+     * Etapa 2 con los reintentos y el circuit breaker que en el modo normal aplican las anotaciones.
+     */
+    private void escribirConReintentos(ChunkMessage chunk, PipelineChunks.TrabajoChunk trabajo) throws Exception {
+        io.github.resilience4j.retry.Retry retry = retryRegistry.retry("importacionRetry");
+        io.github.resilience4j.circuitbreaker.CircuitBreaker circuitBreaker =
+                circuitBreakerRegistry.circuitBreaker("importacionCB");
         try {
-            ImportacionJob job = jobRepository.findById(chunk.getJobId())
-                    .orElseThrow(() -> new RuntimeException("Job no encontrado"));
-
-            // Si ya se procesaron todos los registros
-            if (job.getProcesados() >= job.getTotalRegistros()) {
-                job.marcarComoCompletado();
-                jobRepository.save(job);
-
-                log.info("🎉 Job {} COMPLETADO! Total: {}, Exitosos: {}, Errores: {}, Duración: {}",
-                        job.getId(),
-                        job.getTotalRegistros(),
-                        job.getExitosos(),
-                        job.getErrores(),
-                        job.calcularDuracion());
-
-                // Enviar email de finalización
-                emailService.enviarEmailFinalizacion(
-                        chunk.getUserEmail(),
-                        new JobStatusDTO(job)
-                );
-            }
+            retry.executeCheckedSupplier(() -> circuitBreaker.executeCheckedSupplier(() -> {
+                escribir(chunk, trabajo);
+                return null;
+            }));
         } catch (Exception e) {
-            log.error("Error verificando finalización del job {}: {}",
-                    chunk.getJobId(), e.getMessage());
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Etapa 2: escribir válidos y errores, registrar progreso y, si es el último, cerrar el job.
+     */
+    private void escribir(ChunkMessage chunk, PipelineChunks.TrabajoChunk trabajo) {
+        SueldoChunk sueldos = trabajo.getSueldos();
+        if (sueldos.isEmpty()) {
+            // Igual cuenta como terminado: si no, el job nunca llegaría a cerrarse
+            log.warn("⚠️ Chunk vacío para job {}", chunk.getJobId());
+            terminarChunk(chunk, 0, 0, 0);
+            return;
+        }
+
+        // Bulk insert de registros válidos
+        int validas = sueldos.contarValidas();
+        if (validas > 0) {
+            int insertados = escritorSueldos.escribir(chunk.getJobId(), sueldos);
+            log.info("✅ Insertados {} de {} registros válidos del chunk", insertados, validas);
+        }
+
+        // Guardar errores en batch
+        List<ImportacionErrorDTO> errores = trabajo.getErrores();
+        if (!errores.isEmpty()) {
+            importacionErrorService.guardarErrores(errores);
+            log.warn("⚠️ Guardados {} errores del chunk", errores.size());
+        }
+
+        // Registrar progreso y descontar el chunk; quien deja la cuenta en cero cierra el job.
+        // Exitosos son las filas válidas, igual que en el modo lote: lo que devuelve el escritor
+        // depende del modo (filas afectadas por el merge, o las válidas si se consolida al final)
+        terminarChunk(chunk, sueldos.size(), validas, errores.size());
+    }
+
+    private void leerChunk(ChunkMessage chunk, SueldoChunk destino) throws IOException {
+        if (chunk.getSpillPath() != null) {
+            spillService.leerChunk(
+                    Paths.get(chunk.getSpillPath()),
+                    chunk.getStartRow(),
+                    chunk.getEndRow(),
+                    destino
+            );
+        } else if (chunk.getFormato() != null && chunk.getFormato().isTexto()) {
+            csvService.leerChunk(
+                    Paths.get(chunk.getFilePath()),
+                    chunk.getFormato(),
+                    chunk.getStartRow(),
+                    chunk.getEndRow(),
+                    destino
+            );
+        } else {
+            excelService.leerChunk(
+                    Paths.get(chunk.getFilePath()),
+                    chunk.getStartRow(),
+                    chunk.getEndRow(),
+                    destino
+            );
+        }
+    }
+
+    /**
+     * Filas duplicadas detectadas al generar el spill o el índice CSV; null si el chunk
+     * se lee directo del Excel y solo se pueden buscar dentro del chunk.
+     */
+    private int[] filasDuplicadas(ChunkMessage chunk) throws IOException {
+        if (chunk.getSpillPath() != null) {
+            return spillService.filasDuplicadas(Paths.get(chunk.getSpillPath()));
+        }
+        if (chunk.getFormato() != null && chunk.getFormato().isTexto()) {
+            return csvService.filasDuplicadas(Paths.get(chunk.getFilePath()));
+        }
+        return null;
+    }
+
+    private void terminarChunk(ChunkMessage chunk, int procesados, int exitosos, int errores) {
+        ProgresoService.Avance avance = progresoService.terminarChunk(
+                chunk.getJobId(), chunk.getStartRow(), procesados, exitosos, errores);
+
+        log.debug("📊 Progreso del job {}: {}/{}", chunk.getJobId(), avance.procesados(), avance.total());
+
+        if (avance.ultimo()) {
+            importacionService.finalizarJob(
+                    chunk.getJobId(),
+                    chunk.getUserEmail(),
+                    chunk.getFormato(),
+                    chunk.getFilePath(),
+                    chunk.getSpillPath()
+            );
         }
     }
 
@@ -246,14 +394,13 @@ public class ImportacionConsumer {
                 chunk.getJobId(), e.getMessage(), e);
 
         try {
-            ImportacionJob job = jobRepository.findById(chunk.getJobId())
-                    .orElse(null);
+            String errorMsg = "Error procesando chunk (filas " + chunk.getStartRow() +
+                              "-" + chunk.getEndRow() + "): " + e.getMessage();
+            ImportacionJob job = importacionService.cerrarJob(chunk.getJobId(), j -> j.marcarComoError(errorMsg));
 
-            if (job != null && !job.isCompleto()) {
-                String errorMsg = "Error procesando chunk (filas " + chunk.getStartRow() +
-                                  "-" + chunk.getEndRow() + "): " + e.getMessage();
-                job.marcarComoError(errorMsg);
-                jobRepository.save(job);
+            if (job != null) {
+                escritorSueldos.finalizarJob(job.getId());
+                limpiezaArchivos.liberar(chunk.getFormato(), chunk.getFilePath(), chunk.getSpillPath());
 
                 // Notificar al usuario
                 emailService.enviarEmailError(
@@ -266,18 +413,4 @@ public class ImportacionConsumer {
             log.error("Error en fallback: {}", ex.getMessage());
         }
     }
-
-    private Map<String, Object> convertirAMap(SueldoDTO sueldo) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("numeroEmpleado", sueldo.getNumeroEmpleado());
-        map.put("nombreCompleto", sueldo.getNombreCompleto());
-        map.put("puesto", sueldo.getPuesto());
-        map.put("salarioBase", sueldo.getSalarioBase());
-        map.put("bonos", sueldo.getBonos());
-        map.put("deducciones", sueldo.getDeducciones());
-        map.put("salarioNeto", sueldo.getSalarioNeto());
-        map.put("periodoPago", sueldo.getPeriodoPago());
-        map.put("fechaPago", sueldo.getFechaPago());
-        return map;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.tech.apicargamasiva.consumer;
+
+import com.tech.apicargamasiva.dto.ChunkMessage;
+import com.tech.apicargamasiva.dto.ImportacionErrorDTO;
+import com.tech.apicargamasiva.dto.ResultadoValidacion;
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.tech.apicargamasiva.service.ValidacionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Lectura y escritura de chunks en etapas desacopladas.
+ *
+ * Con {@code importacion.pipeline.enabled} el hilo del listener lee y valida el chunk y lo deja
+ * en la etapa de escritura, un pool fijo de {@code escritores} hilos; el listener vuelve en el
+ * momento a parsear el próximo mensaje mientras el anterior espera a Postgres. El mensaje se
+ * reconoce recién cuando termina la escritura: el listener devuelve el futuro de la etapa y su
+ * contenedor trabaja con ack manual, así que un nodo que se cae no pierde chunks a medio escribir.
+ *
+ * Los chunks leídos y todavía sin escribir ocupan un buffer de un pool fijo de {@code buffers}:
+ * si no hay uno libre el listener espera, y esa es la contrapresión que limita la memoria. La
+ * cola de la etapa de escritura tiene la misma capacidad, así que nunca crece más allá de eso.
+ *
+ * Sin el pipeline (y en el modo lote) todo corre en el hilo del listener sobre un buffer propio
+ * de cada hilo, reutilizado entre chunks.
+ */
+@Component
+@Slf4j
+public class PipelineChunks {
+
+    @Autowired
+    private ValidacionService validacionService;
+
+    @Value("${importacion.pipeline.enabled:false}")
+    private boolean habilitado;
+
+    @Value("${importacion.pipeline.escritores:4}")
+    private int escritores;
+
+    // Chunks leídos y sin escribir como máximo (buffers columnar + resultado de validación)
+    @Value("${importacion.pipeline.buffers:12}")
+    private int cantidadBuffers;
+
+    // Un buffer por hilo del listener cuando todo corre en el mismo hilo
+    private final ThreadLocal<TrabajoChunk> trabajosDelHilo =
+            ThreadLocal.withInitial(() -> new TrabajoChunk(validacionService.nuevoResultado()));
+
+    private BlockingQueue<TrabajoChunk> libres;
+    private ThreadPoolTaskExecutor escritura;
+
+    /**
+     * Una etapa sobre el trabajo del chunk.
+     */
+    @FunctionalInterface
+    public interface Etapa {
+        void ejecutar(ChunkMessage chunk, TrabajoChunk trabajo) throws Exception;
+    }
+
+    /**
+     * Filas leídas del chunk y tiempo de trabajo de sus etapas, sin contar la espera en la cola
+     * de escritura.
+     */
+    public record Medicion(int filas, long nanos) {
+    }
+
+    /**
+     * Estado de un chunk mientras recorre las etapas. Se recicla entre chunks.
+     */
+    public static class TrabajoChunk {
+
+        private final SueldoChunk sueldos = new SueldoChunk();
+        private final ResultadoValidacion resultado;
+        private final List<ImportacionErrorDTO> errores = new ArrayList<>();
+
+        TrabajoChunk(ResultadoValidacion resultado) {
+            this.resultado = resultado;
+        }
+
+        public SueldoChunk getSueldos() {
+            return sueldos;
+        }
+
+        public ResultadoValidacion getResultado() {
+            return resultado;
+        }
+
+        public List<ImportacionErrorDTO> getErrores() {
+            return errores;
+        }
+
+        void limpiar() {
+            sueldos.limpiar();
+            errores.clear();
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (habilitado) {
+            libres = new ArrayBlockingQueue<>(cantidadBuffers);
+            for (int i = 0; i < cantidadBuffers; i++) {
+                libres.add(new TrabajoChunk(validacionService.nuevoResultado()));
+            }
+            escritura = new ThreadPoolTaskExecutor();
+            escritura.setCorePoolSize(escritores);
+            escritura.setMaxPoolSize(escritores);
+            // Cada tarea ocupa un buffer, así que una cola del tamaño del pool de buffers nunca se llena
+            escritura.setQueueCapacity(cantidadBuffers);
+            escritura.setThreadNamePrefix("pipeline-escritura-");
+            escritura.setWaitForTasksToCompleteOnShutdown(true);
+            escritura.setAwaitTerminationSeconds(60);
+            escritura.initialize();
+        }
+
+        log.info("✅ Pipeline de chunks {}: escritores={}, buffers={}",
+                habilitado ? "habilitado" : "deshabilitado", escritores, cantidadBuffers);
+    }
+
+    @PreDestroy
+    void detener() {
+        if (habilitado) {
+            escritura.shutdown();
+        }
+    }
+
+    /**
+     * Buffer del hilo actual, limpio, para procesar en el mismo hilo (sin pipeline o modo lote).
+     */
+    public TrabajoChunk trabajoDelHilo() {
+        TrabajoChunk trabajo = trabajosDelHilo.get();
+        trabajo.limpiar();
+        return trabajo;
+    }
+
+    /**
+     * Ejecuta {@code preparar} en el hilo del llamador y encola {@code escribir} en la etapa de
+     * escritura. El futuro termina cuando termina la escritura; nunca lanza en el momento: los
+     * errores de cualquiera de las dos etapas llegan como futuro fallido (ver {@link #causa}).
+     */
+    public CompletableFuture<Medicion> procesar(ChunkMessage chunk, Etapa preparar, Etapa escribir) {
+        TrabajoChunk trabajo;
+        try {
+            trabajo = libres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long nanosPreparar;
+        try {
+            trabajo.limpiar();
+            long inicio = System.nanoTime();
+            preparar.ejecutar(chunk, trabajo);
+            nanosPreparar = System.nanoTime() - inicio;
+        } catch (Exception e) {
+            libres.add(trabajo);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    long inicio = System.nanoTime();
+                    ejecutar(escribir, chunk, trabajo);
+                    return new Medicion(trabajo.getSueldos().size(), nanosPreparar + System.nanoTime() - inicio);
+                }, escritura)
+                .whenComplete((medicion, error) -> libres.add(trabajo));
+    }
+
+    /**
+     * Excepción original de una etapa, sin los envoltorios del CompletableFuture.
+     */
+    public static Exception causa(Throwable error) {
+        Throwable causa = error;
+        while ((causa instanceof CompletionException || causa instanceof EtapaFallida) && causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        return causa instanceof Exception ex ? ex : new RuntimeException(causa);
+    }
+
+    private static void ejecutar(Etapa etapa, ChunkMessage chunk, TrabajoChunk trabajo) {
+        try {
+            etapa.ejecutar(chunk, trabajo);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EtapaFallida(e);
+        }
+    }
+
+    /**
+     * Envuelve las excepciones chequeadas de una etapa para cruzar el CompletableFuture.
+     */
+    private static class EtapaFallida extends RuntimeException {
+        EtapaFallida(Exception causa) {
+            super(causa);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.tech.apicargamasiva.dto;
 
+import com.tech.apicargamasiva.model.FormatoArchivo;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,6 +18,8 @@ public class ChunkMessage implements Serializable {
 
     private String jobId;
     private String filePath;
+    private String spillPath;
+    private FormatoArchivo formato;
     private Integer startRow;
     private Integer endRow;
     private String userEmail;
@@ -66,6 +66,8 @@ public class ProgressUpdate implements Serializable {
      */
     private static String generarMensaje(ImportacionJob job) {
         switch (job.getStatus()) {
+            case EN_COLA:
+                return "En cola: se iniciará cuando haya capacidad";
             case VALIDANDO:
                 return "Validando archivo...";
             case EN_PROCESO:
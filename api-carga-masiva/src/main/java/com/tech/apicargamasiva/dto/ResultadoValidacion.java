@@ -0,0 +1,79 @@
+package com.tech.apicargamasiva.dto;
+
+import java.util.Arrays;
+
+/**
+ * Resultado reutilizable de validar un chunk: por cada fila guarda una máscara de bits con
+ * los códigos de las reglas que falló. Los mensajes se arman solo para las filas con error.
+ */
+public class ResultadoValidacion {
+
+    private final String[] mensajes;
+    private long[] errores = new long[0];
+    private int tamano;
+    private int filasConError;
+
+    /**
+     * @param mensajes mensaje de cada código, indexado por número de bit
+     */
+    public ResultadoValidacion(String[] mensajes) {
+        if (mensajes.length > Long.SIZE) {
+            throw new IllegalArgumentException("Máximo " + Long.SIZE + " códigos de validación");
+        }
+        this.mensajes = mensajes;
+    }
+
+    /**
+     * Prepara el resultado para un chunk de n filas, sin errores.
+     */
+    public void reiniciar(int filas) {
+        if (errores.length < filas) {
+            errores = new long[Math.max(filas, errores.length * 2)];
+        } else {
+            Arrays.fill(errores, 0, tamano, 0L);
+        }
+        tamano = filas;
+        filasConError = 0;
+    }
+
+    public void marcar(int fila, int codigo) {
+        if (errores[fila] == 0) {
+            filasConError++;
+        }
+        errores[fila] |= 1L << codigo;
+    }
+
+    public boolean tieneErrores(int fila) {
+        return errores[fila] != 0;
+    }
+
+    public boolean tiene(int fila, int codigo) {
+        return (errores[fila] & (1L << codigo)) != 0;
+    }
+
+    public long getCodigos(int fila) {
+        return errores[fila];
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public int contarFilasConError() {
+        return filasConError;
+    }
+
+    /**
+     * Mensajes de los códigos fallidos en la fila, separados por "; ".
+     */
+    public String mensaje(int fila) {
+        long codigos = errores[fila];
+        StringBuilder sb = new StringBuilder();
+        while (codigos != 0) {
+            int codigo = Long.numberOfTrailingZeros(codigos);
+            sb.append(mensajes[codigo]).append("; ");
+            codigos &= codigos - 1;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,299 @@
+package com.tech.apicargamasiva.dto;
+
+import com.tech.apicargamasiva.util.Centavos;
+import com.tech.apicargamasiva.util.ConjuntoLong;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffer columnar y reutilizable para las filas de un chunk.
+ *
+ * Los lectores lo llenan, la validación y el writer de BD lo consumen, y después se limpia
+ * para el siguiente chunk sin liberar los arreglos. Los montos se guardan como centavos
+ * (long), las fechas como epoch day (int) y las columnas de baja cardinalidad (puesto,
+ * periodo de pago) codificadas contra un diccionario.
+ */
+public class SueldoChunk {
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private int tamano;
+
+    private int[] filas;
+    private String[] numeroEmpleado;
+    private String[] nombreCompleto;
+    private final ColumnaDiccionario puesto = new ColumnaDiccionario();
+    private long[] salarioBase;
+    private long[] bonos;
+    private long[] deducciones;
+    private long[] salarioNeto;
+    private final ColumnaDiccionario periodoPago = new ColumnaDiccionario();
+    private int[] fechaPago;
+
+    private boolean[] invalidas;
+    private int cantidadInvalidas;
+    private int[] indicesValidos = new int[0];
+
+    public SueldoChunk() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    public SueldoChunk(int capacidad) {
+        asignar(Math.max(capacidad, 16));
+    }
+
+    /**
+     * Deja el buffer vacío conservando la capacidad alcanzada.
+     */
+    public void limpiar() {
+        Arrays.fill(numeroEmpleado, 0, tamano, null);
+        Arrays.fill(nombreCompleto, 0, tamano, null);
+        Arrays.fill(invalidas, 0, tamano, false);
+        puesto.limpiar();
+        periodoPago.limpiar();
+        cantidadInvalidas = 0;
+        tamano = 0;
+    }
+
+    /**
+     * Agrega una fila y devuelve su índice dentro del chunk.
+     */
+    public int agregar(int fila, String numeroEmpleado, String nombreCompleto, String puesto,
+                       long salarioBase, long bonos, long deducciones, long salarioNeto,
+                       String periodoPago, int fechaPago) {
+        if (tamano == filas.length) {
+            crecer();
+        }
+
+        int i = tamano++;
+        this.filas[i] = fila;
+        this.numeroEmpleado[i] = numeroEmpleado;
+        this.nombreCompleto[i] = nombreCompleto;
+        this.puesto.agregar(i, puesto);
+        this.salarioBase[i] = salarioBase;
+        this.bonos[i] = bonos;
+        this.deducciones[i] = deducciones;
+        this.salarioNeto[i] = salarioNeto;
+        this.periodoPago.agregar(i, periodoPago);
+        this.fechaPago[i] = fechaPago;
+        return i;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    public int getFila(int i) {
+        return filas[i];
+    }
+
+    public String getNumeroEmpleado(int i) {
+        return numeroEmpleado[i];
+    }
+
+    public String getNombreCompleto(int i) {
+        return nombreCompleto[i];
+    }
+
+    public String getPuesto(int i) {
+        return puesto.valor(i);
+    }
+
+    public int getPuestoCodigo(int i) {
+        return puesto.codigo(i);
+    }
+
+    /**
+     * Centavos del salario base.
+     */
+    public long getSalarioBase(int i) {
+        return salarioBase[i];
+    }
+
+    public long getBonos(int i) {
+        return bonos[i];
+    }
+
+    public long getDeducciones(int i) {
+        return deducciones[i];
+    }
+
+    public long getSalarioNeto(int i) {
+        return salarioNeto[i];
+    }
+
+    public String getPeriodoPago(int i) {
+        return periodoPago.valor(i);
+    }
+
+    public int getPeriodoPagoCodigo(int i) {
+        return periodoPago.codigo(i);
+    }
+
+    /**
+     * Cantidad de periodos de pago distintos en el chunk (códigos 0..n-1).
+     */
+    public int contarPeriodosPago() {
+        return periodoPago.distintos();
+    }
+
+    public String getPeriodoPagoPorCodigo(int codigo) {
+        return periodoPago.porCodigo(codigo);
+    }
+
+    /**
+     * Si la fila tiene clave (número de empleado y periodo no vacíos) para detectar duplicados.
+     */
+    public boolean tieneClave(int i) {
+        return numeroEmpleado[i] != null && !numeroEmpleado[i].isBlank()
+                && periodoPago.valor(i) != null && !periodoPago.valor(i).isBlank();
+    }
+
+    /**
+     * Hash de 64 bits de (numero_empleado, periodo_pago), la clave única de sueldos.
+     */
+    public long hashClave(int i) {
+        return ConjuntoLong.hashPar(numeroEmpleado[i], periodoPago.valor(i));
+    }
+
+    /**
+     * Días desde 1970-01-01.
+     */
+    public int getFechaPago(int i) {
+        return fechaPago[i];
+    }
+
+    public void marcarInvalida(int i) {
+        if (!invalidas[i]) {
+            invalidas[i] = true;
+            cantidadInvalidas++;
+        }
+    }
+
+    public boolean isValida(int i) {
+        return !invalidas[i];
+    }
+
+    public int contarValidas() {
+        return tamano - cantidadInvalidas;
+    }
+
+    /**
+     * Índices de las filas válidas. El arreglo se reutiliza entre llamadas y solo son
+     * significativas las primeras {@link #contarValidas()} posiciones.
+     */
+    public int[] indicesValidos() {
+        if (indicesValidos.length < tamano) {
+            indicesValidos = new int[filas.length];
+        }
+        int n = 0;
+        for (int i = 0; i < tamano; i++) {
+            if (!invalidas[i]) {
+                indicesValidos[n++] = i;
+            }
+        }
+        return indicesValidos;
+    }
+
+    /**
+     * Datos crudos de la fila i, para guardarlos junto al error.
+     */
+    public Map<String, Object> aMapa(int i) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("numeroEmpleado", numeroEmpleado[i]);
+        map.put("nombreCompleto", nombreCompleto[i]);
+        map.put("puesto", puesto.valor(i));
+        map.put("salarioBase", Centavos.aBigDecimal(salarioBase[i]));
+        map.put("bonos", Centavos.aBigDecimal(bonos[i]));
+        map.put("deducciones", Centavos.aBigDecimal(deducciones[i]));
+        map.put("salarioNeto", Centavos.aBigDecimal(salarioNeto[i]));
+        map.put("periodoPago", periodoPago.valor(i));
+        map.put("fechaPago", LocalDate.ofEpochDay(fechaPago[i]));
+        return map;
+    }
+
+    private void crecer() {
+        int capacidad = filas.length * 2;
+        filas = Arrays.copyOf(filas, capacidad);
+        numeroEmpleado = Arrays.copyOf(numeroEmpleado, capacidad);
+        nombreCompleto = Arrays.copyOf(nombreCompleto, capacidad);
+        salarioBase = Arrays.copyOf(salarioBase, capacidad);
+        bonos = Arrays.copyOf(bonos, capacidad);
+        deducciones = Arrays.copyOf(deducciones, capacidad);
+        salarioNeto = Arrays.copyOf(salarioNeto, capacidad);
+        fechaPago = Arrays.copyOf(fechaPago, capacidad);
+        invalidas = Arrays.copyOf(invalidas, capacidad);
+        puesto.crecer(capacidad);
+        periodoPago.crecer(capacidad);
+    }
+
+    private void asignar(int capacidad) {
+        filas = new int[capacidad];
+        numeroEmpleado = new String[capacidad];
+        nombreCompleto = new String[capacidad];
+        salarioBase = new long[capacidad];
+        bonos = new long[capacidad];
+        deducciones = new long[capacidad];
+        salarioNeto = new long[capacidad];
+        fechaPago = new int[capacidad];
+        invalidas = new boolean[capacidad];
+        puesto.crecer(capacidad);
+        periodoPago.crecer(capacidad);
+    }
+
+    /**
+     * Columna de texto codificada contra un diccionario local al chunk: cada fila guarda
+     * solo el código y cada valor distinto se almacena una única vez.
+     */
+    private static class ColumnaDiccionario {
+
+        private int[] codigos = new int[0];
+        private final List<String> valores = new ArrayList<>();
+        private final Map<String, Integer> indice = new HashMap<>();
+
+        void agregar(int fila, String valor) {
+            Integer codigo = indice.get(valor);
+            if (codigo == null) {
+                codigo = valores.size();
+                valores.add(valor);
+                indice.put(valor, codigo);
+            }
+            codigos[fila] = codigo;
+        }
+
+        String valor(int fila) {
+            return valores.get(codigos[fila]);
+        }
+
+        int codigo(int fila) {
+            return codigos[fila];
+        }
+
+        int distintos() {
+            return valores.size();
+        }
+
+        String porCodigo(int codigo) {
+            return valores.get(codigo);
+        }
+
+        void crecer(int capacidad) {
+            codigos = Arrays.copyOf(codigos, capacidad);
+        }
+
+        void limpiar() {
+            valores.clear();
+            indice.clear();
+        }
+    }
+}
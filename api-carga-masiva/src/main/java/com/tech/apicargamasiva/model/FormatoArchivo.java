@@ -0,0 +1,56 @@
+package com.tech.apicargamasiva.model;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Formatos de archivo soportados para la importación
+ */
+public enum FormatoArchivo {
+    EXCEL((byte) 0),
+    CSV((byte) ','),
+    TSV((byte) '\t');
+
+    private static final Set<String> TIPOS_CSV = Set.of(
+            "text/csv", "application/csv", "text/comma-separated-values", "text/x-csv");
+    private static final Set<String> TIPOS_TSV = Set.of(
+            "text/tab-separated-values", "text/tsv");
+    private static final String TIPO_XLSX =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final byte delimitador;
+
+    FormatoArchivo(byte delimitador) {
+        this.delimitador = delimitador;
+    }
+
+    public byte getDelimitador() {
+        return delimitador;
+    }
+
+    public boolean isTexto() {
+        return this != EXCEL;
+    }
+
+    /**
+     * Determina el formato a partir del content type del upload. Cuando el content type
+     * es ambiguo (p. ej. "application/vnd.ms-excel", que varios navegadores envían para .csv)
+     * se usa la extensión del archivo.
+     */
+    public static FormatoArchivo desde(String contentType, String filename) {
+        String tipo = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        int parametros = tipo.indexOf(';');
+        if (parametros >= 0) {
+            tipo = tipo.substring(0, parametros).trim();
+        }
+
+        if (TIPO_XLSX.equals(tipo)) return EXCEL;
+        if (TIPOS_CSV.contains(tipo)) return CSV;
+        if (TIPOS_TSV.contains(tipo)) return TSV;
+
+        String nombre = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        if (nombre.endsWith(".csv")) return CSV;
+        if (nombre.endsWith(".tsv") || nombre.endsWith(".tab")) return TSV;
+        return EXCEL;
+    }
+}
@@ -85,6 +85,7 @@ public class ImportacionJob implements Serializable {
      * Estados del Job de Importación
      */
     public enum JobStatus {
+        EN_COLA("En cola, esperando capacidad"),
         VALIDANDO("Validando archivo"),
         EN_PROCESO("Procesando registros"),
         COMPLETADO("Completado exitosamente"),
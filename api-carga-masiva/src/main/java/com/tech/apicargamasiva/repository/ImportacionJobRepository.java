@@ -3,15 +3,19 @@ package com.tech.apicargamasiva.repository;
 
 import com.tech.apicargamasiva.model.ImportacionJob;
 import io.lettuce.core.dynamic.annotation.Param;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ImportacionJobRepository extends JpaRepository<ImportacionJob, String> {
@@ -109,9 +113,18 @@ public interface ImportacionJobRepository extends JpaRepository<ImportacionJob,
             @Param("updatedAt") LocalDateTime updatedAt
     );
 
+    /**
+     * Busca un job bloqueando su fila hasta el fin de la transacción, para cambios de estado
+     * que no deben pisar los incrementos concurrentes de contadores
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ImportacionJob j WHERE j.id = :jobId")
+    Optional<ImportacionJob> findParaActualizar(@Param("jobId") String jobId);
+
     /**
      * Incrementa los contadores de un job (thread-safe con version)
      */
+    @Transactional
     @Modifying
     @Query("UPDATE ImportacionJob j SET " +
            "j.procesados = j.procesados + :procesados, " +
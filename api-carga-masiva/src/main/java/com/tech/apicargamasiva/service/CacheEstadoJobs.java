@@ -0,0 +1,129 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.JobStatusDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Near cache en memoria del estado de los jobs, delante de la copia {@code job:{id}} en Redis.
+ *
+ * LRU acotado por cantidad de entradas y con TTL corto. Cada vez que un nodo reescribe el job
+ * en Redis publica su id en un canal de pub/sub y todos los nodos (incluido él) descartan su
+ * entrada; el TTL cubre un mensaje perdido. Así las consultas de estado de las UIs se
+ * responden casi siempre desde memoria y los nodos quedan alineados en pocos cientos de ms.
+ *
+ * La carga se hace fuera del lock, así que una invalidación puede llegar mientras tanto. Cada
+ * job lleva una generación que sube al descartarlo; si cambió durante la carga, el valor se
+ * devuelve pero no se guarda, para no tapar la invalidación con un estado viejo por un TTL.
+ */
+@Service
+@Slf4j
+public class CacheEstadoJobs implements MessageListener {
+
+    public static final String CANAL_INVALIDACION = "jobs:estado:invalidacion";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisListenerContainer;
+
+    @Value("${importacion.estado-cache.max-entradas:1000}")
+    private int maxEntradas;
+
+    @Value("${importacion.estado-cache.ttl-ms:2000}")
+    private long ttlMs;
+
+    private record Entrada(JobStatusDTO estado, long expiraNanos) {
+    }
+
+    private Map<String, Entrada> entradas;
+
+    // Generación por job, acotada igual que las entradas. Los valores salen de un contador
+    // global; la mayor generación que salió del mapa es la de todo job que no está, así un job
+    // descartado y luego expulsado nunca vuelve a la generación que vio una carga anterior
+    private Map<String, Long> generaciones;
+    private long contador;
+    private long piso;
+
+    @PostConstruct
+    void iniciar() {
+        // LinkedHashMap en orden de acceso: la entrada más antigua sale al superar el límite
+        entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > maxEntradas;
+            }
+        };
+        generaciones = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > maxEntradas) {
+                    piso = Math.max(piso, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        redisListenerContainer.addMessageListener(this, new ChannelTopic(CANAL_INVALIDACION));
+    }
+
+    /**
+     * Estado del job desde memoria, o desde {@code cargar} si no está o venció.
+     */
+    public JobStatusDTO obtener(String jobId, Function<String, JobStatusDTO> cargar) {
+        long ahora = System.nanoTime();
+        long generacion;
+        synchronized (this) {
+            Entrada entrada = entradas.get(jobId);
+            if (entrada != null && ahora - entrada.expiraNanos() < 0) {
+                return entrada.estado();
+            }
+            generacion = generaciones.getOrDefault(jobId, piso);
+        }
+
+        // La carga va fuera del lock: una consulta lenta a Redis o a la base no frena a las demás
+        JobStatusDTO estado = cargar.apply(jobId);
+        synchronized (this) {
+            if (generaciones.getOrDefault(jobId, piso) == generacion) {
+                entradas.put(jobId, new Entrada(estado, ahora + ttlMs * 1_000_000L));
+            }
+        }
+        return estado;
+    }
+
+    /**
+     * Descarta el job en este nodo y avisa a los demás.
+     */
+    public void invalidar(String jobId) {
+        descartar(jobId);
+        try {
+            stringRedisTemplate.convertAndSend(CANAL_INVALIDACION, jobId);
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo publicar la invalidación del job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        descartar(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private synchronized void descartar(String jobId) {
+        entradas.remove(jobId);
+        generaciones.put(jobId, ++contador);
+    }
+}
@@ -0,0 +1,222 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.model.FormatoArchivo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Control de admisión de jobs: a lo sumo {@code importacion.max-concurrent-jobs} en proceso en
+ * todo el cluster.
+ *
+ * El semáforo es un sorted set de Redis con un permiso por job y como score el vencimiento de
+ * su lease. El nodo que admitió el job renueva el lease con un heartbeat mientras el job siga
+ * activo; si el nodo se cae, el lease vence y el lugar se libera solo. Al cerrarse el job (sea
+ * cual sea el nodo que lo cierre) se quita el permiso.
+ *
+ * Los jobs que no entran quedan EN_COLA en una lista de Redis y arrancan en orden de llegada
+ * cuando se libera un lugar: al liberar se intenta despachar en el momento, y un despachador
+ * periódico cubre el resto (leases vencidos, otros nodos). Tomar el lugar y sacar el job de la
+ * cola es un solo script, así dos nodos nunca arrancan el mismo job. Mientras haya jobs en cola
+ * un job nuevo no toma un lugar libre aunque lo haya: va al final de la cola.
+ *
+ * Un job encolado que no puede arrancar (sus datos de arranque vencieron o falló al arrancar)
+ * se cierra con error, se borra su archivo y se avisa al usuario.
+ */
+@Service
+@Slf4j
+public class ControlAdmision {
+
+    private static final String CLAVE_PERMISOS = "importacion:admision:permisos";
+    private static final String CLAVE_COLA = "importacion:admision:cola";
+
+    // KEYS: permisos, cola | ARGV: jobId, ahora, vencimiento, máximo
+    private static final RedisScript<Long> ADQUIRIR = new DefaultRedisScript<>("""
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[2])
+            if redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+                redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+                return 1
+            end
+            if redis.call('LLEN', KEYS[2]) > 0 then
+                return 0
+            end
+            if redis.call('ZCARD', KEYS[1]) < tonumber(ARGV[4]) then
+                redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS: permisos | ARGV: jobId, vencimiento
+    private static final RedisScript<Long> RENOVAR = new DefaultRedisScript<>("""
+            if redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+                redis.call('ZADD', KEYS[1], 'XX', ARGV[2], ARGV[1])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // Toma un lugar para el primer job de la cola, si hay lugar
+    // KEYS: permisos, cola | ARGV: ahora, vencimiento, máximo
+    private static final RedisScript<String> DESPACHAR = new DefaultRedisScript<>("""
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[1])
+            if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[3]) then
+                return false
+            end
+            local jobId = redis.call('LPOP', KEYS[2])
+            if not jobId then
+                return false
+            end
+            redis.call('ZADD', KEYS[1], ARGV[2], jobId)
+            return jobId
+            """, String.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Lazy
+    @Autowired
+    private ImportacionService importacionService;
+
+    @Value("${importacion.max-concurrent-jobs:10}")
+    private int maxJobs;
+
+    @Value("${importacion.admision.lease-ms:60000}")
+    private long leaseMs;
+
+    // Datos para arrancar un job encolado; deben durar más que la espera en la cola
+    @Value("${importacion.admision.ttl-cola-horas:24}")
+    private long ttlColaHoras;
+
+    // Jobs admitidos por este nodo, cuyos leases renueva el heartbeat
+    private final Set<String> leasesPropios = ConcurrentHashMap.newKeySet();
+
+    private static String claveEncolado(String jobId) {
+        return "importacion:admision:job:" + jobId;
+    }
+
+    /**
+     * Intenta tomar un lugar para el job. Devuelve false si ya están todos ocupados o si hay
+     * jobs esperando en la cola (tienen precedencia).
+     */
+    public boolean adquirir(String jobId) {
+        long ahora = System.currentTimeMillis();
+        Long r = stringRedisTemplate.execute(ADQUIRIR, List.of(CLAVE_PERMISOS, CLAVE_COLA),
+                jobId, String.valueOf(ahora), String.valueOf(ahora + leaseMs), String.valueOf(maxJobs));
+        if (r != null && r == 1) {
+            leasesPropios.add(jobId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Deja el job en la cola con lo necesario para arrancarlo después desde cualquier nodo.
+     */
+    public void encolar(String jobId, Path archivoPath, String userEmail, FormatoArchivo formato) {
+        String clave = claveEncolado(jobId);
+        stringRedisTemplate.opsForHash().putAll(clave, Map.of(
+                "archivo", archivoPath.toString(),
+                "email", userEmail,
+                "formato", formato.name()));
+        stringRedisTemplate.expire(clave, Duration.ofHours(ttlColaHoras));
+        stringRedisTemplate.opsForList().rightPush(CLAVE_COLA, jobId);
+    }
+
+    /**
+     * Devuelve el lugar del job (que ya terminó o falló) y arranca el siguiente de la cola.
+     */
+    public void liberar(String jobId) {
+        leasesPropios.remove(jobId);
+        try {
+            stringRedisTemplate.opsForZSet().remove(CLAVE_PERMISOS, jobId);
+            despachar();
+        } catch (Exception e) {
+            // El lease vence solo; el despachador periódico arranca lo que quede en cola
+            log.warn("⚠️ No se pudo liberar el lugar del job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${importacion.admision.heartbeat-ms:20000}")
+    public void renovarLeases() {
+        long vencimiento = System.currentTimeMillis() + leaseMs;
+        for (String jobId : leasesPropios) {
+            try {
+                Long r = stringRedisTemplate.execute(RENOVAR, List.of(CLAVE_PERMISOS),
+                        jobId, String.valueOf(vencimiento));
+                if (r == null || r == 0) {
+                    // Otro nodo cerró el job y liberó el lugar
+                    leasesPropios.remove(jobId);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ No se pudo renovar el lease del job {}: {}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Arranca jobs de la cola mientras haya lugar.
+     */
+    @Scheduled(fixedDelayString = "${importacion.admision.despacho-ms:1000}")
+    public void despachar() {
+        while (true) {
+            long ahora = System.currentTimeMillis();
+            String jobId = stringRedisTemplate.execute(DESPACHAR, List.of(CLAVE_PERMISOS, CLAVE_COLA),
+                    String.valueOf(ahora), String.valueOf(ahora + leaseMs), String.valueOf(maxJobs));
+            if (jobId == null) {
+                return;
+            }
+            leasesPropios.add(jobId);
+            arrancar(jobId);
+        }
+    }
+
+    private void arrancar(String jobId) {
+        String clave = claveEncolado(jobId);
+        Map<Object, Object> datos = stringRedisTemplate.opsForHash().entries(clave);
+        stringRedisTemplate.delete(clave);
+
+        if (datos.isEmpty()) {
+            log.warn("⚠️ Job {} sin datos de arranque en la cola; se cierra con error", jobId);
+            fallar(jobId, null, "La importación esperó en cola más de " + ttlColaHoras
+                    + " horas y se descartó; vuelva a subir el archivo");
+            return;
+        }
+
+        Path archivo = Paths.get((String) datos.get("archivo"));
+        try {
+            log.info("🚦 Job {} sale de la cola", jobId);
+            importacionService.iniciarEncolado(jobId, archivo,
+                    (String) datos.get("email"),
+                    FormatoArchivo.valueOf((String) datos.get("formato")));
+        } catch (Exception e) {
+            log.error("💥 No se pudo arrancar el job encolado {}: {}", jobId, e.getMessage(), e);
+            fallar(jobId, archivo, "No se pudo iniciar la importación: " + e.getMessage());
+        }
+    }
+
+    private void fallar(String jobId, Path archivo, String mensaje) {
+        try {
+            importacionService.fallarEncolado(jobId, archivo, mensaje);
+        } catch (Exception e) {
+            log.error("💥 No se pudo cerrar el job encolado {}: {}", jobId, e.getMessage(), e);
+        } finally {
+            // cerrarJob ya lo libera si cerró el job; si no (ya cerrado o error), se libera igual
+            liberar(jobId);
+        }
+    }
+}
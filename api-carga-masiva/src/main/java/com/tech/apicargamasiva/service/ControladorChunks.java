@@ -0,0 +1,219 @@
+package com.tech.apicargamasiva.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tamaño adaptativo de chunk a partir del rendimiento medido por los consumers.
+ *
+ * Cada consumer informa filas y duración de los chunks que termina; el costo por fila se
+ * promedia con un EWMA en Redis (compartido por todos los nodos, porque la carga que importa
+ * es la de Postgres). El publicador dimensiona cada chunk para que dure cerca de
+ * {@code objetivo-ms}: chunks grandes con filas simples y una base holgada, más chicos cuando
+ * la base se pone lenta y los chunks se acercarían al umbral de llamada lenta del circuit
+ * breaker. El cambio entre un chunk y el siguiente está acotado a un factor para no oscilar.
+ *
+ * Los chunks se publican de a poco: el publicador no adelanta más de {@code ventana} chunks
+ * sin terminar, así el tamaño de los que salen después refleja las mediciones recientes. Si la
+ * ventana no avanza durante {@code estancamiento} veces el objetivo (ningún chunk del job
+ * termina), la espera se corta con error para que el job no retenga su lugar para siempre.
+ */
+@Service
+@Slf4j
+public class ControladorChunks {
+
+    private static final String CLAVE_RITMO = "importacion:chunks:ritmo";
+
+    // KEYS: hash del ritmo | ARGV: ms por fila medidos, alfa
+    private static final RedisScript<String> REGISTRAR = new DefaultRedisScript<>("""
+            local x = tonumber(ARGV[1])
+            local previo = redis.call('HGET', KEYS[1], 'ms_por_fila')
+            if previo then
+                local a = tonumber(ARGV[2])
+                x = a * x + (1 - a) * tonumber(previo)
+            end
+            redis.call('HSET', KEYS[1], 'ms_por_fila', tostring(x))
+            return tostring(x)
+            """, String.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ProgresoService progresoService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Tamaño inicial, mientras no haya mediciones
+    @Value("${importacion.chunk-size:1000}")
+    private int tamanoInicial;
+
+    @Value("${importacion.chunk-adaptativo.enabled:true}")
+    private boolean habilitado;
+
+    // Duración buscada por chunk; bastante por debajo del umbral de llamada lenta (60s)
+    @Value("${importacion.chunk-adaptativo.objetivo-ms:5000}")
+    private long objetivoMs;
+
+    @Value("${importacion.chunk-adaptativo.minimo:200}")
+    private int tamanoMinimo;
+
+    @Value("${importacion.chunk-adaptativo.maximo:20000}")
+    private int tamanoMaximo;
+
+    // Peso de la medición nueva en el EWMA
+    @Value("${importacion.chunk-adaptativo.alfa:0.3}")
+    private double alfa;
+
+    // Máximo factor de cambio entre un chunk y el siguiente
+    @Value("${importacion.chunk-adaptativo.factor-maximo:2.0}")
+    private double factorMaximo;
+
+    // Chunks publicados y sin terminar por job
+    @Value("${importacion.chunk-adaptativo.ventana:20}")
+    private int ventana;
+
+    @Value("${importacion.chunk-adaptativo.espera-ms:50}")
+    private long esperaMs;
+
+    // Múltiplo de objetivo-ms sin que termine ningún chunk del job antes de darlo por trabado
+    @Value("${importacion.chunk-adaptativo.estancamiento:60}")
+    private int estancamiento;
+
+    private DistributionSummary tamanos;
+    private Timer duraciones;
+    private Counter filasProcesadas;
+
+    // Último EWMA conocido por este nodo (ms por fila), para el gauge
+    private volatile double msPorFila = Double.NaN;
+
+    @PostConstruct
+    void iniciar() {
+        tamanos = DistributionSummary.builder("importacion.chunk.tamano")
+                .description("Filas por chunk elegidas por el publicador")
+                .baseUnit("filas")
+                .register(meterRegistry);
+        duraciones = Timer.builder("importacion.chunk.duracion")
+                .description("Duración de cada chunk en el consumer")
+                .register(meterRegistry);
+        filasProcesadas = Counter.builder("importacion.chunk.filas")
+                .description("Filas procesadas por los consumers")
+                .baseUnit("filas")
+                .register(meterRegistry);
+        Gauge.builder("importacion.chunk.filas-por-segundo", this, c -> 1000.0 / c.msPorFila)
+                .description("Rendimiento estimado (EWMA) usado para dimensionar los chunks")
+                .register(meterRegistry);
+
+        log.info("✅ Chunk adaptativo {}: objetivo={} ms, rango=[{}, {}], ventana={}",
+                habilitado ? "habilitado" : "deshabilitado", objetivoMs, tamanoMinimo, tamanoMaximo, ventana);
+    }
+
+    /**
+     * Tamaño del próximo chunk del job, dado el tamaño del anterior (0 si es el primero).
+     */
+    public int siguienteTamano(int anterior) {
+        int tamano = habilitado ? calcularTamano(anterior) : tamanoInicial;
+        tamanos.record(tamano);
+        return tamano;
+    }
+
+    private int calcularTamano(int anterior) {
+        double estimado = leerMsPorFila();
+        if (Double.isNaN(estimado) || estimado <= 0) {
+            return anterior > 0 ? anterior : tamanoInicial;
+        }
+
+        double deseado = objetivoMs / estimado;
+        if (anterior > 0) {
+            deseado = Math.max(anterior / factorMaximo, Math.min(anterior * factorMaximo, deseado));
+        }
+        return (int) Math.max(tamanoMinimo, Math.min(tamanoMaximo, deseado));
+    }
+
+    /**
+     * Registra lo que tardó un chunk (o un lote de chunks) en el consumer.
+     */
+    public void registrar(int filas, long duracionNanos) {
+        duraciones.record(duracionNanos, TimeUnit.NANOSECONDS);
+        if (filas <= 0) {
+            return;
+        }
+        filasProcesadas.increment(filas);
+
+        double medido = duracionNanos / 1_000_000.0 / filas;
+        try {
+            String ewma = stringRedisTemplate.execute(REGISTRAR, List.of(CLAVE_RITMO),
+                    String.valueOf(medido), String.valueOf(alfa));
+            if (ewma != null) {
+                msPorFila = Double.parseDouble(ewma);
+            }
+        } catch (Exception e) {
+            // Sin la medición el publicador sigue con el último tamaño: no vale frenar el chunk
+            log.warn("⚠️ No se pudo registrar el ritmo del chunk: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Espera hasta que el job tenga menos de {@code ventana} chunks en vuelo. Devuelve false si
+     * {@code cancelado} se cumple mientras espera (por ejemplo, el job se cerró con error y
+     * sus chunks pendientes ya no van a terminar).
+     *
+     * @throws TimeoutException si ningún chunk del job termina durante {@code estancamiento}
+     *                          veces {@code objetivo-ms}
+     */
+    public boolean esperarVentana(String jobId, BooleanSupplier cancelado)
+            throws InterruptedException, TimeoutException {
+        long limiteNanos = TimeUnit.MILLISECONDS.toNanos(objetivoMs * estancamiento);
+        long siguienteControl = System.nanoTime();
+        long ultimoAvance = siguienteControl;
+        long enVueloAnterior = Long.MAX_VALUE;
+
+        for (long enVuelo; (enVuelo = progresoService.chunksEnVuelo(jobId)) >= ventana; ) {
+            long ahora = System.nanoTime();
+            if (enVuelo < enVueloAnterior) {
+                enVueloAnterior = enVuelo;
+                ultimoAvance = ahora;
+            } else if (ahora - ultimoAvance >= limiteNanos) {
+                throw new TimeoutException("Ningún chunk del job " + jobId + " terminó en "
+                        + TimeUnit.NANOSECONDS.toSeconds(limiteNanos) + " s (" + enVuelo + " en vuelo)");
+            }
+            if (ahora - siguienteControl >= 0) {
+                if (cancelado.getAsBoolean()) {
+                    return false;
+                }
+                siguienteControl = ahora + TimeUnit.SECONDS.toNanos(1);
+            }
+            Thread.sleep(esperaMs);
+        }
+        return true;
+    }
+
+    private double leerMsPorFila() {
+        try {
+            Object valor = stringRedisTemplate.opsForHash().get(CLAVE_RITMO, "ms_por_fila");
+            if (valor != null) {
+                msPorFila = Double.parseDouble(valor.toString());
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo leer el ritmo de chunks: {}", e.getMessage());
+        }
+        return msPorFila;
+    }
+}
@@ -0,0 +1,496 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.ResultadoValidacion;
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.tech.apicargamasiva.model.FormatoArchivo;
+import com.tech.apicargamasiva.util.Centavos;
+import com.tech.apicargamasiva.util.DiccionarioTextos;
+import com.tech.apicargamasiva.util.FilasDuplicadas;
+import com.tech.apicargamasiva.util.IndiceFilas;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motor de ingesta CSV/TSV. Trabaja sobre el archivo mapeado en memoria y parsea los bytes
+ * directamente (sin readLine ni String.split). Un índice de offsets por fila, generado en
+ * una sola pasada, permite que cada chunk [startRow, endRow] se traduzca a un rango de bytes.
+ */
+@Service
+@Slf4j
+public class CsvService {
+
+    private static final int COLUMNAS = 9;
+    private static final long SEGMENTO_BYTES = 64L * 1024 * 1024;
+    private static final int ENCABEZADO_MAX_BYTES = 64 * 1024;
+    private static final int FILAS_POR_BLOQUE = 64 * 1024;
+    private static final int CAMPO_NUMERO_EMPLEADO = 0;
+    private static final int CAMPO_PUESTO = 2;
+    private static final int CAMPO_PERIODO_PAGO = 7;
+
+    private static final byte COMILLA = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    @Autowired
+    private ValidacionService validacionService;
+
+    // Diccionario (de solo lectura) y filas duplicadas ya cargados por archivo: cada consumer
+    // los lee una sola vez por job y los comparten los chunks del job
+    private final Map<Path, DiccionarioTextos> diccionarios = new ConcurrentHashMap<>();
+    private final Map<Path, int[]> duplicados = new ConcurrentHashMap<>();
+
+    public Path rutaIndice(Path csvPath) {
+        return csvPath.resolveSibling(csvPath.getFileName() + ".idx");
+    }
+
+    public boolean validarFormato(Path csvPath, FormatoArchivo formato) {
+        try (FileChannel canal = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            int longitud = (int) Math.min(canal.size(), ENCABEZADO_MAX_BYTES);
+            if (longitud == 0) {
+                return false;
+            }
+
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, longitud);
+            LectorFilas lector = new LectorFilas(buffer, formato.getDelimitador());
+            lector.saltarBom();
+            if (!lector.siguienteFila()) {
+                return false;
+            }
+
+            for (int i = 0; i < ExcelService.ENCABEZADOS.length; i++) {
+                String encabezado = lector.texto(i);
+                if (encabezado == null || !ExcelService.normalizarEncabezado(encabezado)
+                        .equalsIgnoreCase(ExcelService.normalizarEncabezado(ExcelService.ENCABEZADOS[i]))) {
+                    return false;
+                }
+            }
+
+            return true;
+        } catch (Exception e) {
+            log.error("Error validando formato CSV: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Escribe el índice de offsets de las filas de datos, marca las filas cuya clave
+     * (empleado + periodo) repite una fila anterior válida del archivo y guarda el diccionario de
+     * puesto y periodo de pago.
+     *
+     * @return total de filas de datos
+     */
+    public int indexar(Path csvPath, FormatoArchivo formato) throws IOException {
+        int filas = escribirIndice(csvPath);
+        analizarFilas(csvPath, formato, filas);
+        return filas;
+    }
+
+    /**
+     * Filas (ordinal base 1) que repiten la clave de una fila anterior del archivo.
+     */
+    public int[] filasDuplicadas(Path csvPath) throws IOException {
+        try {
+            return duplicados.computeIfAbsent(csvPath.toAbsolutePath().normalize(), ruta -> {
+                try {
+                    return FilasDuplicadas.leer(FilasDuplicadas.ruta(csvPath));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Recorre el archivo una sola vez y escribe el índice de offsets de las filas de datos
+     * (se omiten el encabezado y las líneas vacías).
+     */
+    private int escribirIndice(Path csvPath) throws IOException {
+        long inicio = System.currentTimeMillis();
+
+        try (FileChannel canal = FileChannel.open(csvPath, StandardOpenOption.READ);
+             IndiceFilas.Escritor indice = IndiceFilas.escritor(rutaIndice(csvPath))) {
+
+            long tamano = canal.size();
+            boolean enComillas = false;
+            boolean encabezadoLeido = false;
+            boolean filaConContenido = false;
+            long inicioFila = 0;
+
+            for (long base = 0; base < tamano; base += SEGMENTO_BYTES) {
+                int longitud = (int) Math.min(SEGMENTO_BYTES, tamano - base);
+                MappedByteBuffer segmento = canal.map(FileChannel.MapMode.READ_ONLY, base, longitud);
+
+                for (int i = 0; i < longitud; i++) {
+                    byte b = segmento.get(i);
+
+                    if (b == COMILLA) {
+                        enComillas = !enComillas;
+                        filaConContenido = true;
+                    } else if (b == LF && !enComillas) {
+                        if (filaConContenido) {
+                            if (encabezadoLeido) {
+                                indice.agregar(inicioFila);
+                            }
+                            encabezadoLeido = true;
+                        }
+                        inicioFila = base + i + 1;
+                        filaConContenido = false;
+                    } else if (b != CR) {
+                        filaConContenido = true;
+                    }
+                }
+            }
+
+            // Última fila sin salto de línea final
+            if (filaConContenido && encabezadoLeido) {
+                indice.agregar(inicioFila);
+            }
+            indice.cerrar(tamano);
+
+            log.info("📇 Índice CSV generado {}: {} filas en {} ms",
+                    csvPath.getFileName(), indice.getFilas(), System.currentTimeMillis() - inicio);
+            return indice.getFilas();
+        }
+    }
+
+    /**
+     * Segunda pasada secuencial, por bloques de filas del índice. Cada bloque se decodifica y
+     * se valida como un chunk, para que solo las filas válidas cuenten como primera aparición
+     * de su clave; de paso arma el diccionario que después leen los chunks.
+     */
+    private void analizarFilas(Path csvPath, FormatoArchivo formato, int filas) throws IOException {
+        long inicio = System.currentTimeMillis();
+        Path indicePath = rutaIndice(csvPath);
+        FilasDuplicadas.Detector detector = new FilasDuplicadas.Detector(Math.min(filas, 1 << 20));
+        DiccionarioTextos diccionario = new DiccionarioTextos();
+        SueldoChunk bloque = new SueldoChunk(Math.min(filas, FILAS_POR_BLOQUE));
+        ResultadoValidacion resultado = validacionService.nuevoResultado();
+
+        try (FileChannel canal = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            for (int desde = 0; desde < filas; desde += FILAS_POR_BLOQUE) {
+                IndiceFilas.Rango rango = IndiceFilas.rango(indicePath, desde, desde + FILAS_POR_BLOQUE - 1);
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, rango.inicio(), rango.longitud());
+
+                bloque.limpiar();
+                leerFilas(new LectorFilas(buffer, formato.getDelimitador()), desde + 1, rango.filas(),
+                        diccionario, bloque);
+                validacionService.validarReglas(bloque, resultado);
+                for (int i = 0; i < bloque.size(); i++) {
+                    if (bloque.tieneClave(i) && !resultado.tieneErrores(i)) {
+                        detector.registrar(bloque.getFila(i), bloque.hashClave(i));
+                    }
+                }
+            }
+        }
+
+        detector.escribir(FilasDuplicadas.ruta(csvPath));
+        diccionario.escribir(DiccionarioTextos.ruta(csvPath));
+        log.info("🔁 Duplicados CSV {}: {} filas repetidas, {} valores en diccionario, en {} ms",
+                csvPath.getFileName(), detector.getCantidad(), diccionario.size(),
+                System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Lee las filas [startRow, endRow] (ordinales base 1 sobre las filas de datos) sobre
+     * el buffer destino, mapeando solo el rango de bytes que indica el índice.
+     */
+    public void leerChunk(Path csvPath, FormatoArchivo formato, int startRow, int endRow, SueldoChunk destino)
+            throws IOException {
+        // El índice lo genera solo procesarAsync: si falta, el job ya se cerró (o nunca se
+        // indexó) y el chunk falla en lugar de recrear archivos que nadie borraría
+        Path indicePath = rutaIndice(csvPath);
+        if (!Files.exists(indicePath)) {
+            throw new IOException("No existe el índice CSV de " + csvPath.getFileName());
+        }
+
+        IndiceFilas.Rango rango = IndiceFilas.rango(indicePath, startRow - 1, endRow - 1);
+        if (rango.filas() == 0) {
+            return;
+        }
+
+        DiccionarioTextos diccionario = cargarDiccionario(csvPath);
+
+        try (FileChannel canal = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, rango.inicio(), rango.longitud());
+            leerFilas(new LectorFilas(buffer, formato.getDelimitador()), startRow, rango.filas(),
+                    diccionario, destino);
+        }
+    }
+
+    /**
+     * Decodifica hasta {@code filas} filas del lector sobre el buffer destino, numerándolas
+     * desde {@code primeraFila}.
+     */
+    private void leerFilas(LectorFilas lector, int primeraFila, int filas, DiccionarioTextos diccionario,
+                           SueldoChunk destino) {
+        for (int n = 0; n < filas && lector.siguienteFila(); n++) {
+            try {
+                destino.agregar(primeraFila + n,
+                        lector.textoNoNulo(CAMPO_NUMERO_EMPLEADO),
+                        lector.textoNoNulo(1),
+                        lector.texto(CAMPO_PUESTO, diccionario),
+                        lector.centavos(3),
+                        lector.centavos(4),
+                        lector.centavos(5),
+                        lector.centavos(6),
+                        lector.texto(CAMPO_PERIODO_PAGO, diccionario),
+                        lector.diaEpoch(8));
+            } catch (Exception e) {
+                log.warn("Error mapeando fila CSV {}: {}", primeraFila + n, e.getMessage());
+            }
+        }
+    }
+
+    public void eliminarIndice(Path csvPath) {
+        descartarCache(csvPath);
+        try {
+            Files.deleteIfExists(rutaIndice(csvPath));
+            Files.deleteIfExists(FilasDuplicadas.ruta(csvPath));
+            Files.deleteIfExists(DiccionarioTextos.ruta(csvPath));
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar el índice {}: {}", csvPath, e.getMessage());
+        }
+    }
+
+    private DiccionarioTextos cargarDiccionario(Path csvPath) throws IOException {
+        try {
+            return diccionarios.computeIfAbsent(csvPath.toAbsolutePath().normalize(), ruta -> {
+                try {
+                    return DiccionarioTextos.leer(DiccionarioTextos.ruta(csvPath));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Olvida el diccionario y las filas duplicadas cargados para el archivo en este nodo.
+     */
+    public void descartarCache(Path csvPath) {
+        diccionarios.remove(csvPath.toAbsolutePath().normalize());
+        duplicados.remove(csvPath.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Parser de filas sobre un ByteBuffer. Para cada fila registra los límites de sus campos
+     * y los decodifica bajo demanda copiando solo los bytes del campo a un buffer reutilizable.
+     */
+    private static class LectorFilas {
+
+        private final ByteBuffer buffer;
+        private final byte delimitador;
+        private final int[] inicios = new int[COLUMNAS];
+        private final int[] fines = new int[COLUMNAS];
+        private final boolean[] citados = new boolean[COLUMNAS];
+        private int campos;
+        private int posicion;
+        private byte[] scratch = new byte[256];
+        private final int hoy = (int) LocalDate.now().toEpochDay();
+
+        LectorFilas(ByteBuffer buffer, byte delimitador) {
+            this.buffer = buffer;
+            this.delimitador = delimitador;
+        }
+
+        void saltarBom() {
+            if (buffer.limit() >= 3
+                && buffer.get(0) == (byte) 0xEF
+                && buffer.get(1) == (byte) 0xBB
+                && buffer.get(2) == (byte) 0xBF) {
+                posicion = 3;
+            }
+        }
+
+        /**
+         * Avanza a la siguiente fila no vacía. Devuelve false al llegar al final del buffer.
+         */
+        boolean siguienteFila() {
+            int limite = buffer.limit();
+
+            while (posicion < limite) {
+                campos = 0;
+                int inicioCampo = posicion;
+                boolean enComillas = false;
+                boolean citado = false;
+                boolean contenido = false;
+                int i = posicion;
+
+                for (; i < limite; i++) {
+                    byte b = buffer.get(i);
+
+                    if (enComillas) {
+                        if (b == COMILLA) {
+                            if (i + 1 < limite && buffer.get(i + 1) == COMILLA) {
+                                i++;
+                            } else {
+                                enComillas = false;
+                            }
+                        }
+                        continue;
+                    }
+
+                    if (b == COMILLA) {
+                        enComillas = true;
+                        citado = true;
+                        contenido = true;
+                    } else if (b == delimitador) {
+                        cerrarCampo(inicioCampo, i, citado);
+                        inicioCampo = i + 1;
+                        citado = false;
+                        contenido = true;
+                    } else if (b == LF) {
+                        break;
+                    } else if (b != CR) {
+                        contenido = true;
+                    }
+                }
+
+                int finFila = i;
+                if (finFila > inicioCampo && buffer.get(finFila - 1) == CR) {
+                    finFila--;
+                }
+                cerrarCampo(inicioCampo, finFila, citado);
+                posicion = i + 1;
+
+                if (contenido) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void cerrarCampo(int inicio, int fin, boolean citado) {
+            if (campos < COLUMNAS) {
+                inicios[campos] = inicio;
+                fines[campos] = fin;
+                citados[campos] = citado;
+            }
+            campos++;
+        }
+
+        /**
+         * Copia el campo al scratch quitando espacios externos, comillas y escapes "".
+         * Devuelve la longitud copiada o -1 si el campo no existe en la fila.
+         */
+        private int copiar(int campo) {
+            if (campo >= campos || campo >= COLUMNAS) {
+                return -1;
+            }
+
+            int inicio = inicios[campo];
+            int fin = fines[campo];
+            while (inicio < fin && buffer.get(inicio) == ' ') inicio++;
+            while (fin > inicio && buffer.get(fin - 1) == ' ') fin--;
+
+            if (fin - inicio > scratch.length) {
+                scratch = new byte[fin - inicio];
+            }
+
+            int longitud = 0;
+            if (citados[campo] && fin - inicio >= 2 && buffer.get(inicio) == COMILLA) {
+                inicio++;
+                if (buffer.get(fin - 1) == COMILLA) fin--;
+                for (int i = inicio; i < fin; i++) {
+                    byte b = buffer.get(i);
+                    scratch[longitud++] = b;
+                    if (b == COMILLA && i + 1 < fin && buffer.get(i + 1) == COMILLA) {
+                        i++;
+                    }
+                }
+            } else {
+                for (int i = inicio; i < fin; i++) {
+                    scratch[longitud++] = buffer.get(i);
+                }
+            }
+            return longitud;
+        }
+
+        String texto(int campo) {
+            int longitud = copiar(campo);
+            return longitud < 0 ? null : new String(scratch, 0, longitud, StandardCharsets.UTF_8).trim();
+        }
+
+        String textoNoNulo(int campo) {
+            String valor = texto(campo);
+            return valor == null ? "" : valor;
+        }
+
+        /**
+         * Texto de una columna de baja cardinalidad: se busca por sus bytes en el diccionario
+         * y solo se crea el String si el valor no se había visto.
+         */
+        String texto(int campo, DiccionarioTextos diccionario) {
+            int longitud = copiar(campo);
+            return longitud < 0 ? "" : diccionario.canonico(scratch, 0, longitud);
+        }
+
+        /**
+         * Decodifica el monto en centavos directamente desde los bytes del campo.
+         * Los valores vacíos o inválidos se toman como cero, igual que en Excel.
+         */
+        long centavos(int campo) {
+            int longitud = copiar(campo);
+            return longitud <= 0 ? 0 : Centavos.parsearOCero(scratch, 0, longitud);
+        }
+
+        /**
+         * Fechas ISO (yyyy-MM-dd) se decodifican desde los bytes; cualquier otro texto pasa
+         * por LocalDate.parse. Si no es una fecha válida se usa la fecha actual, igual que en Excel.
+         *
+         * @return días desde 1970-01-01
+         */
+        int diaEpoch(int campo) {
+            int longitud = copiar(campo);
+            if (longitud <= 0) return hoy;
+
+            if (longitud == 10 && scratch[4] == '-' && scratch[7] == '-') {
+                int anio = digitos(0, 4);
+                int mes = digitos(5, 2);
+                int dia = digitos(8, 2);
+                if (anio >= 0 && mes >= 0 && dia >= 0) {
+                    try {
+                        return (int) LocalDate.of(anio, mes, dia).toEpochDay();
+                    } catch (DateTimeException e) {
+                        return hoy;
+                    }
+                }
+            }
+
+            try {
+                return (int) LocalDate.parse(new String(scratch, 0, longitud, StandardCharsets.UTF_8)).toEpochDay();
+            } catch (Exception e) {
+                return hoy;
+            }
+        }
+
+        private int digitos(int desde, int cantidad) {
+            int valor = 0;
+            for (int i = desde; i < desde + cantidad; i++) {
+                byte b = scratch[i];
+                if (b < '0' || b > '9') return -1;
+                valor = valor * 10 + (b - '0');
+            }
+            return valor;
+        }
+    }
+}
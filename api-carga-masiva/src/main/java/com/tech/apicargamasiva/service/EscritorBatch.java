@@ -0,0 +1,114 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.tech.apicargamasiva.util.Centavos;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Escritor por defecto: batch JDBC de INSERT ... ON CONFLICT DO UPDATE fila por fila.
+ */
+@Service
+@ConditionalOnProperty(name = "importacion.escritor", havingValue = "batch", matchIfMissing = true)
+public class EscritorBatch implements EscritorSueldos {
+
+    private static final String UPSERT_SUELDO = """
+            INSERT INTO sueldos
+            (numero_empleado, nombre_completo, puesto, salario_base, bonos,
+             deducciones, salario_neto, periodo_pago, fecha_pago, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (numero_empleado, periodo_pago)
+            DO UPDATE SET
+                nombre_completo = EXCLUDED.nombre_completo,
+                puesto = EXCLUDED.puesto,
+                salario_base = EXCLUDED.salario_base,
+                bonos = EXCLUDED.bonos,
+                deducciones = EXCLUDED.deducciones,
+                salario_neto = EXCLUDED.salario_neto,
+                fecha_pago = EXCLUDED.fecha_pago,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ParticionService particionService;
+
+    @Override
+    @Transactional
+    public int escribir(String jobId, SueldoChunk sueldos) {
+        List<String> particionados = particionService.periodos(sueldos);
+        particionService.asegurarParticiones(particionados);
+        particionService.bloquearPeriodos(particionados);
+
+        int[] validos = sueldos.indicesValidos();
+        int cantidad = sueldos.contarValidas();
+        LocalDateTime now = LocalDateTime.now();
+
+        // Filas agrupadas por periodo (counting sort sobre el código de diccionario): la tabla
+        // padre enruta cada grupo a su partición, y filas seguidas del mismo periodo caen en la
+        // misma partición
+        int periodos = sueldos.contarPeriodosPago();
+        int[] inicio = new int[periodos + 1];
+        for (int n = 0; n < cantidad; n++) {
+            inicio[sueldos.getPeriodoPagoCodigo(validos[n]) + 1]++;
+        }
+        for (int c = 0; c < periodos; c++) {
+            inicio[c + 1] += inicio[c];
+        }
+        int[] ordenadas = new int[cantidad];
+        int[] siguiente = Arrays.copyOf(inicio, periodos);
+        for (int n = 0; n < cantidad; n++) {
+            ordenadas[siguiente[sueldos.getPeriodoPagoCodigo(validos[n])]++] = validos[n];
+        }
+
+        int escritos = 0;
+        for (int c = 0; c < periodos; c++) {
+            if (inicio[c + 1] > inicio[c]) {
+                escritos += escribirGrupo(sueldos, ordenadas, inicio[c], inicio[c + 1] - inicio[c], now);
+            }
+        }
+        return escritos;
+    }
+
+    private int escribirGrupo(SueldoChunk sueldos, int[] filas, int desde, int cantidad, LocalDateTime now) {
+        int[] results = jdbcTemplate.batchUpdate(UPSERT_SUELDO, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                int fila = filas[desde + i];
+
+                // Los BigDecimal y LocalDate se materializan solo al pasar al driver
+                ps.setString(1, sueldos.getNumeroEmpleado(fila));
+                ps.setString(2, sueldos.getNombreCompleto(fila));
+                ps.setString(3, sueldos.getPuesto(fila));
+                ps.setBigDecimal(4, Centavos.aBigDecimal(sueldos.getSalarioBase(fila)));
+                ps.setBigDecimal(5, Centavos.aBigDecimal(sueldos.getBonos(fila)));
+                ps.setBigDecimal(6, Centavos.aBigDecimal(sueldos.getDeducciones(fila)));
+                ps.setBigDecimal(7, Centavos.aBigDecimal(sueldos.getSalarioNeto(fila)));
+                ps.setString(8, sueldos.getPeriodoPago(fila));
+                ps.setObject(9, LocalDate.ofEpochDay(sueldos.getFechaPago(fila)));
+                ps.setObject(10, now);
+                ps.setObject(11, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return cantidad;
+            }
+        });
+
+        return Arrays.stream(results).sum();
+    }
+}
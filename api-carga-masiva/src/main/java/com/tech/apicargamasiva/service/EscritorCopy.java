@@ -0,0 +1,301 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.tech.apicargamasiva.util.CopyBinario;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Escritor por COPY: cada chunk se envía con COPY binario (CopyManager de PgJDBC) a una
+ * tabla de staging y luego se fusiona en sueldos con un único INSERT ... SELECT ... ON CONFLICT.
+ *
+ * Por defecto (merge por chunk) el staging es una tabla temporal de la conexión con
+ * {@code ON COMMIT DELETE ROWS}: COPY y merge van en la misma transacción, el merge lee solo
+ * las filas del chunk y el commit la vacía con un truncate, sin dejar tuplas muertas ni
+ * tocar el catálogo en cada chunk.
+ *
+ * Con {@code importacion.merge.modo=job} los chunks se acumulan en una tabla UNLOGGED del
+ * job, indexada por lote para que el reintento de un chunk reemplace solo su lote, y el merge
+ * se hace una sola vez al final del job, ordenado por clave y en una única transacción
+ * (opcionalmente reemplazando completos los periodos del archivo).
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "importacion.escritor", havingValue = "copy")
+public class EscritorCopy implements EscritorSueldos {
+
+    private static final String COLUMNAS = """
+            numero_empleado, nombre_completo, puesto, salario_base, bonos,
+            deducciones, salario_neto, periodo_pago, fecha_pago""";
+
+    private static final String COLUMNAS_STAGING = """
+            fila INTEGER NOT NULL,
+            numero_empleado VARCHAR(50),
+            nombre_completo VARCHAR(200),
+            puesto VARCHAR(100),
+            salario_base DECIMAL(12, 2),
+            bonos DECIMAL(12, 2),
+            deducciones DECIMAL(12, 2),
+            salario_neto DECIMAL(12, 2),
+            periodo_pago VARCHAR(20),
+            fecha_pago DATE""";
+
+    // Staging del merge por chunk: temporal, una por conexión
+    private static final String STAGING_CHUNK = "staging_sueldos_chunk";
+
+    private static final int CAMPOS_STAGING = 10;
+    private static final int BYTES_POR_ENVIO = 1 << 16;
+
+    private static final String MERGE_JOB = "job";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ParticionService particionService;
+
+    @Value("${importacion.merge.modo:chunk}")
+    private String modoMerge;
+
+    // Solo en modo job: borra de sueldos los periodos presentes en el archivo antes del merge
+    @Value("${importacion.merge.reemplazar-periodo:false}")
+    private boolean reemplazarPeriodo;
+
+    // Buffer de codificación por hilo del listener
+    private final ThreadLocal<CopyBinario> buffers = ThreadLocal.withInitial(CopyBinario::new);
+
+    /**
+     * Nombre de la tabla de staging del job. El jobId es un UUID; se valida igual porque
+     * el nombre se concatena en el SQL.
+     */
+    public static String tablaStaging(String jobId) {
+        String sufijo = jobId.replace("-", "");
+        for (int i = 0; i < sufijo.length(); i++) {
+            char c = sufijo.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                throw new IllegalArgumentException("jobId inválido para staging: " + jobId);
+            }
+        }
+        return "staging_sueldos_" + sufijo.toLowerCase();
+    }
+
+    @Override
+    public void prepararJob(String jobId) {
+        if (!MERGE_JOB.equals(modoMerge)) {
+            return;
+        }
+
+        String tabla = tablaStaging(jobId);
+        jdbcTemplate.execute("""
+                CREATE UNLOGGED TABLE IF NOT EXISTS %s (
+                    lote BIGINT NOT NULL,
+                    %s
+                )""".formatted(tabla, COLUMNAS_STAGING));
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS %1$s_lote ON %1$s (lote)".formatted(tabla));
+        log.info("🧱 Staging {} creada", tabla);
+    }
+
+    @Override
+    public int escribir(String jobId, SueldoChunk sueldos) {
+        String tabla = tablaStaging(jobId);
+        // Los chunks de un job no se solapan: la primera fila identifica el lote
+        long lote = sueldos.getFila(0);
+
+        // El merge inserta en la tabla padre, que enruta cada periodo a su partición
+        List<String> periodos = particionService.periodos(sueldos);
+        particionService.asegurarParticiones(periodos);
+
+        Integer escritos = transactionTemplate.execute(status -> {
+            if (MERGE_JOB.equals(modoMerge)) {
+                return jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+                    // Un reintento del chunk reemplaza su lote en vez de duplicarlo
+                    borrarLote(con, tabla, lote);
+                    copiar(con, tabla, lote, sueldos);
+                    return sueldos.contarValidas();
+                });
+            }
+
+            particionService.bloquearPeriodos(periodos);
+            return jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+                try (PreparedStatement ps = con.prepareStatement("""
+                        CREATE TEMP TABLE IF NOT EXISTS %s (
+                            %s
+                        ) ON COMMIT DELETE ROWS""".formatted(STAGING_CHUNK, COLUMNAS_STAGING))) {
+                    ps.execute();
+                }
+                copiar(con, STAGING_CHUNK, null, sueldos);
+                return fusionar(con, STAGING_CHUNK);
+            });
+        });
+
+        return escritos != null ? escritos : 0;
+    }
+
+    /**
+     * Merge del job completo en una sola transacción. El advisory lock serializa a los
+     * consumers que detecten el final a la vez, y como el staging se elimina dentro de la
+     * misma transacción, quien llegue después ya no lo encuentra y no hace nada.
+     */
+    @Override
+    public void consolidarJob(String jobId) {
+        if (!MERGE_JOB.equals(modoMerge)) {
+            return;
+        }
+
+        String tabla = tablaStaging(jobId);
+        long inicio = System.currentTimeMillis();
+
+        Integer fusionados = transactionTemplate.execute(status ->
+                jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+                    try (PreparedStatement ps = con.prepareStatement("SELECT pg_advisory_xact_lock(hashtext(?))")) {
+                        ps.setString(1, tabla);
+                        ps.execute();
+                    }
+                    if (!existeTabla(con, tabla)) {
+                        return null;
+                    }
+                    // Las particiones se aseguraron al escribir cada chunk, pero la retención pudo
+                    // eliminar alguna desde entonces
+                    List<String> periodos = particionService.periodos(tabla);
+                    particionService.asegurarParticiones(periodos);
+                    particionService.bloquearPeriodos(periodos);
+
+                    if (reemplazarPeriodo) {
+                        try (PreparedStatement ps = con.prepareStatement("""
+                                DELETE FROM sueldos
+                                WHERE periodo_pago IN (SELECT DISTINCT periodo_pago FROM %s)
+                                """.formatted(tabla))) {
+                            int borrados = ps.executeUpdate();
+                            log.info("♻️ Job {}: {} sueldos previos de los periodos del archivo reemplazados",
+                                    jobId, borrados);
+                        }
+                    }
+
+                    int filas = fusionar(con, tabla);
+                    try (PreparedStatement ps = con.prepareStatement("DROP TABLE " + tabla)) {
+                        ps.execute();
+                    }
+                    return filas;
+                }));
+
+        if (fusionados != null) {
+            log.info("🔀 Job {} consolidado: {} filas fusionadas en {} ms",
+                    jobId, fusionados, System.currentTimeMillis() - inicio);
+        }
+    }
+
+    @Override
+    public void finalizarJob(String jobId) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + tablaStaging(jobId));
+    }
+
+    /**
+     * @param lote lote del chunk en el staging del job, o null en el staging temporal por chunk
+     */
+    private void copiar(Connection con, String tabla, Long lote, SueldoChunk sueldos) throws SQLException {
+        CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                "COPY " + tabla + " (" + (lote != null ? "lote, " : "") + "fila, " + COLUMNAS
+                        + ") FROM STDIN (FORMAT BINARY)");
+
+        try {
+            CopyBinario buffer = buffers.get();
+            buffer.limpiar();
+            buffer.cabecera();
+
+            int[] validos = sueldos.indicesValidos();
+            for (int n = 0; n < sueldos.contarValidas(); n++) {
+                int i = validos[n];
+                if (lote != null) {
+                    buffer.fila(CAMPOS_STAGING + 1).bigint(lote);
+                } else {
+                    buffer.fila(CAMPOS_STAGING);
+                }
+                buffer.entero(sueldos.getFila(i))
+                        .texto(sueldos.getNumeroEmpleado(i))
+                        .texto(sueldos.getNombreCompleto(i))
+                        .texto(sueldos.getPuesto(i))
+                        .numeric(sueldos.getSalarioBase(i))
+                        .numeric(sueldos.getBonos(i))
+                        .numeric(sueldos.getDeducciones(i))
+                        .numeric(sueldos.getSalarioNeto(i))
+                        .texto(sueldos.getPeriodoPago(i))
+                        .fecha(sueldos.getFechaPago(i));
+
+                if (buffer.size() >= BYTES_POR_ENVIO) {
+                    copy.writeToCopy(buffer.getBytes(), 0, buffer.size());
+                    buffer.limpiar();
+                }
+            }
+
+            buffer.fin();
+            copy.writeToCopy(buffer.getBytes(), 0, buffer.size());
+            buffer.limpiar();
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private void borrarLote(Connection con, String tabla, long lote) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("DELETE FROM " + tabla + " WHERE lote = ?")) {
+            ps.setLong(1, lote);
+            ps.executeUpdate();
+        }
+    }
+
+    private boolean existeTabla(Connection con, String tabla) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Si una clave aparece más de una vez gana la última fila, igual que con el upsert fila
+     * por fila. Las filas entran ordenadas por clave, así el índice único y los secundarios
+     * de sueldos se recorren en orden en lugar de al azar.
+     */
+    private int fusionar(Connection con, String tabla) throws SQLException {
+        String sql = """
+                INSERT INTO sueldos (%1$s, created_at, updated_at)
+                SELECT DISTINCT ON (numero_empleado, periodo_pago) %1$s, now(), now()
+                FROM %2$s
+                ORDER BY numero_empleado, periodo_pago, fila DESC
+                ON CONFLICT (numero_empleado, periodo_pago)
+                DO UPDATE SET
+                    nombre_completo = EXCLUDED.nombre_completo,
+                    puesto = EXCLUDED.puesto,
+                    salario_base = EXCLUDED.salario_base,
+                    bonos = EXCLUDED.bonos,
+                    deducciones = EXCLUDED.deducciones,
+                    salario_neto = EXCLUDED.salario_neto,
+                    fecha_pago = EXCLUDED.fecha_pago,
+                    updated_at = EXCLUDED.updated_at
+                """.formatted(COLUMNAS, tabla);
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            return ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.SueldoChunk;
+
+/**
+ * Estrategia de escritura de las filas válidas de un chunk en la tabla sueldos.
+ * Se elige con la propiedad {@code importacion.escritor} (batch | copy).
+ */
+public interface EscritorSueldos {
+
+    /**
+     * Prepara lo que el job necesite antes de publicar sus chunks (p. ej. tablas de staging).
+     */
+    default void prepararJob(String jobId) {
+    }
+
+    /**
+     * Escribe (upsert) las filas válidas del chunk.
+     *
+     * @return filas insertadas o actualizadas
+     */
+    int escribir(String jobId, SueldoChunk sueldos);
+
+    /**
+     * Se llama una vez procesados todos los chunks, antes de marcar el job como completado.
+     * Debe ser idempotente: más de un consumer puede detectar el final del job.
+     */
+    default void consolidarJob(String jobId) {
+    }
+
+    /**
+     * Libera los recursos del job; se llama al completar o al fallar el job.
+     */
+    default void finalizarJob(String jobId) {
+    }
+}
@@ -1,165 +1,633 @@
 package com.tech.apicargamasiva.service;
 
-import com.tech.apicargamasiva.dto.SueldoDTO;
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.tech.apicargamasiva.util.Centavos;
+import com.tech.apicargamasiva.util.DiccionarioTextos;
+import com.tech.apicargamasiva.util.InspectorXlsx;
+import com.tech.apicargamasiva.util.TablaCadenasMapeada;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
-import java.io.FileInputStream;
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
 
 @Service
 @Slf4j
 public class ExcelService {
+
+    private static final int COLUMNAS = 9;
+
+    // Serial de Excel (sistema 1900) correspondiente a 1970-01-01
+    private static final int SERIAL_EPOCH = 25569;
+    // Ídem en el sistema de fechas 1904 (workbookPr date1904), donde el serial 0 es 1904-01-01
+    private static final int SERIAL_EPOCH_1904 = 24107;
+    // Antes del 1900-03-01 el serial arrastra el bug del 29/02/1900
+    private static final int SERIAL_MARZO_1900 = 61;
+
+    static final String[] ENCABEZADOS = {
+            "Numero Empleado", "Nombre Completo", "Puesto",
+            "Salario Base", "Bonos", "Deducciones",
+            "Salario Neto", "Periodo Pago", "Fecha Pago"
+    };
+
+    // sharedStrings.xml por encima de este tamaño se mapea fuera del heap
+    @Value("${importacion.excel.sst-umbral-bytes:16777216}")
+    private long sstUmbralBytes;
+
+    @Value("${importacion.excel.sst-cache-bytes:8388608}")
+    private long sstCacheBytes;
+
+    @Value("${importacion.temp-directory:./temp-uploads}")
+    private String tempDirectory;
+
+    /**
+     * Cuenta las filas de datos leyendo solo la dimensión declarada por la hoja.
+     */
     public int contarRegistros(Path excelPath) throws IOException {
-        try (FileInputStream fis = new FileInputStream(excelPath.toFile());
-             Workbook workbook = new XSSFWorkbook(fis)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            return sheet.getLastRowNum(); // Excluye header
-        }
+        // Índice de la última fila = cantidad de filas sin el header
+        return Math.max(0, InspectorXlsx.inspeccionar(excelPath, COLUMNAS).ultimaFila());
     }
 
-    public List<SueldoDTO> leerChunk(Path excelPath, int startRow, int endRow) throws IOException {
-        List<SueldoDTO> sueldos = new ArrayList<>();
+    /**
+     * Lee las filas [startRow, endRow] de la primera hoja sobre el buffer columnar destino.
+     */
+    public void leerChunk(Path excelPath, int startRow, int endRow, SueldoChunk destino) throws IOException {
+        recorrerFilas(excelPath, startRow, endRow, destino, new DiccionarioTextos(), Integer.MAX_VALUE, null);
+    }
 
-        try (FileInputStream fis = new FileInputStream(excelPath.toFile());
-             Workbook workbook = new XSSFWorkbook(fis)) {
+    /**
+     * Recorre en streaming (SAX) las filas [startRow, endRow] de la primera hoja.
+     * Solo se mantiene en memoria la fila actual y el parseo se detiene al pasar endRow.
+     *
+     * Las filas se decodifican sobre buffer; cada vez que acumula tamanoLote filas se entrega
+     * a alCompletarLote y se limpia. Si alCompletarLote es null el buffer conserva todas las filas.
+     * Puesto y periodo de pago se canonicalizan contra diccionario (por índice de shared string
+     * cuando la celda lo es), así que las filas repetidas comparten la misma instancia.
+     */
+    public void recorrerFilas(Path excelPath, int startRow, int endRow, SueldoChunk buffer,
+                              DiccionarioTextos diccionario, int tamanoLote,
+                              Consumer<SueldoChunk> alCompletarLote) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(excelPath.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("No se pudo abrir el Excel: " + e.getMessage(), e);
+        }
 
-            Sheet sheet = workbook.getSheetAt(0);
+        TablaCadenasMapeada tablaMapeada = null;
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
 
-            for (int i = startRow; i <= endRow && i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
+            Iterator<InputStream> hojas = reader.getSheetsData();
+            if (!hojas.hasNext()) {
+                return;
+            }
 
-                try {
-                    SueldoDTO sueldo = mapearFila(row);
-                    if (sueldo != null) {
-                        sueldos.add(sueldo);
-                    }
-                } catch (Exception e) {
-                    log.warn("Error mapeando fila {}: {}", i, e.getMessage());
-                    // Continuar con siguiente fila
+            IntFunction<String> sharedStrings;
+            if (usarTablaMapeada(pkg)) {
+                try (InputStream sst = reader.getSharedStringsData()) {
+                    tablaMapeada = TablaCadenasMapeada.crear(sst, Paths.get(tempDirectory), sstCacheBytes);
                 }
+                log.info("🗺️ Shared strings mapeadas fuera del heap: {} cadenas", tablaMapeada.size());
+                sharedStrings = tablaMapeada::get;
+            } else {
+                ReadOnlySharedStringsTable tabla = new ReadOnlySharedStringsTable(pkg);
+                sharedStrings = indice -> tabla.getItemAt(indice).getString();
+            }
+
+            DecodificadorFila decodificador = new DecodificadorFila(
+                    styles, sharedStrings, diccionario, usaFechas1904(reader));
+
+            try (InputStream hoja = hojas.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new HojaHandler(
+                        startRow, endRow, decodificador, buffer, tamanoLote, alCompletarLote));
+                parser.parse(new InputSource(hoja));
+            } catch (LecturaCompletaException e) {
+                // Se alcanzó endRow: no es necesario seguir leyendo la hoja
+            }
+
+            if (alCompletarLote != null && !buffer.isEmpty()) {
+                alCompletarLote.accept(buffer);
+                buffer.limpiar();
             }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Error leyendo Excel en streaming: " + e.getMessage(), e);
+        } finally {
+            if (tablaMapeada != null) {
+                tablaMapeada.close();
+            }
+            pkg.revert();
         }
+    }
 
-        return sueldos;
+    /**
+     * Lee {@code workbookPr@date1904} de workbook.xml: los libros guardados con el sistema de
+     * fechas 1904 cuentan los seriales desde 1904-01-01.
+     */
+    private static boolean usaFechas1904(XSSFReader reader)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        boolean[] fecha1904 = new boolean[1];
+        try (InputStream workbook = reader.getWorkbookData()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes atributos) {
+                    if ("workbookPr".equals(localName)) {
+                        String valor = atributos.getValue("date1904");
+                        fecha1904[0] = "1".equals(valor) || "true".equalsIgnoreCase(valor);
+                        throw new LecturaCompletaException();
+                    }
+                    if ("sheets".equals(localName)) {
+                        // workbookPr va antes que sheets: si no apareció, el libro usa el sistema 1900
+                        throw new LecturaCompletaException();
+                    }
+                }
+            });
+            parser.parse(new InputSource(workbook));
+        } catch (LecturaCompletaException e) {
+            // Ya se tiene el dato
+        }
+        return fecha1904[0];
     }
 
-    private SueldoDTO mapearFila(Row row) {
+    /**
+     * La tabla de POI carga todas las cadenas en heap; por encima del umbral (o si el tamaño
+     * descomprimido no se conoce) se usa la tabla mapeada en un archivo temporal.
+     */
+    private boolean usarTablaMapeada(OPCPackage pkg) throws InvalidFormatException {
+        List<PackagePart> partes = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        if (partes.isEmpty()) {
+            return false;
+        }
+        long tamano = partes.get(0).getSize();
+        return tamano < 0 || tamano > sstUmbralBytes;
+    }
+
+    public boolean validarFormato(Path excelPath) {
         try {
-            return SueldoDTO.builder()
-                    .numeroEmpleado(getCellValueAsString(row.getCell(0)))
-                    .nombreCompleto(getCellValueAsString(row.getCell(1)))
-                    .puesto(getCellValueAsString(row.getCell(2)))
-                    .salarioBase(getCellValueAsBigDecimal(row.getCell(3)))
-                    .bonos(getCellValueAsBigDecimal(row.getCell(4)))
-                    .deducciones(getCellValueAsBigDecimal(row.getCell(5)))
-                    .salarioNeto(getCellValueAsBigDecimal(row.getCell(6)))
-                    .periodoPago(getCellValueAsString(row.getCell(7)))
-                    .fechaPago(getCellValueAsDate(row.getCell(8)))
-                    .build();
+            String[] encabezados = InspectorXlsx.inspeccionar(excelPath, COLUMNAS).primeraFila();
+
+            // Validar headers esperados
+            for (int i = 0; i < ENCABEZADOS.length; i++) {
+                if (encabezados[i] == null || !normalizarEncabezado(encabezados[i])
+                        .equalsIgnoreCase(normalizarEncabezado(ENCABEZADOS[i]))) {
+                    return false;
+                }
+            }
+
+            return true;
         } catch (Exception e) {
-            log.error("Error mapeando fila: {}", e.getMessage());
-            return null;
+            log.error("Error validando formato: {}", e.getMessage());
+            return false;
         }
     }
 
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
+    /**
+     * Los encabezados se comparan sin espacios ni mayúsculas ("Numero Empleado" == "NumeroEmpleado").
+     */
+    static String normalizarEncabezado(String encabezado) {
+        return encabezado.replaceAll("\\s+", "");
+    }
 
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                }
-                return String.valueOf((long) cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return "";
+    /**
+     * Índice (base 0) de la columna a partir de una referencia tipo "AB12".
+     */
+    private static int indiceColumna(String referencia) {
+        int columna = 0;
+        for (int i = 0; i < referencia.length(); i++) {
+            char c = referencia.charAt(i);
+            if (c < 'A' || c > 'Z') break;
+            columna = columna * 26 + (c - 'A' + 1);
         }
+        return columna - 1;
     }
 
-    private BigDecimal getCellValueAsBigDecimal(Cell cell) {
-        if (cell == null) return BigDecimal.ZERO;
-
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return BigDecimal.valueOf(cell.getNumericCellValue());
-            case STRING:
-                try {
-                    String value = cell.getStringCellValue().trim()
-                            .replace(",", "")
-                            .replace("$", "");
-                    return new BigDecimal(value);
-                } catch (NumberFormatException e) {
-                    return BigDecimal.ZERO;
-                }
-            default:
-                return BigDecimal.ZERO;
+    private static int parsearEntero(CharSequence valor, int porDefecto) {
+        if (valor == null || valor.length() == 0) return porDefecto;
+
+        int resultado = 0;
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c < '0' || c > '9') return porDefecto;
+            resultado = resultado * 10 + (c - '0');
         }
+        return resultado;
+    }
+
+    /**
+     * Tipo físico de una celda según su atributo t y el formato numérico de su estilo.
+     */
+    private enum TipoCelda {
+        TEXTO_COMPARTIDO,
+        TEXTO,
+        NUMERO,
+        FECHA,
+        BOOLEANO,
+        ERROR
     }
 
-    private LocalDate getCellValueAsDate(Cell cell) {
-        if (cell == null) return LocalDate.now();
+    /**
+     * Decodifica las 9 columnas de una fila. El tipo físico y el formato de fecha de cada
+     * columna se infieren una sola vez por hoja (con la primera celda que aparece); las celdas
+     * con el mismo atributo t y el mismo estilo reutilizan ese tipo y solo las que se desvían
+     * pasan por la clasificación genérica. La resolución "estilo -> es fecha" se cachea por
+     * índice de estilo, así que DateUtil se consulta una vez por estilo y no por celda.
+     */
+    private static class DecodificadorFila {
+
+        private static final byte ESTILO_DESCONOCIDO = 0;
+        private static final byte ESTILO_FECHA = 1;
+        private static final byte ESTILO_NUMERO = 2;
 
-        if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-            Date date = cell.getDateCellValue();
-            return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        private final StylesTable styles;
+        private final IntFunction<String> sharedStrings;
+        private final DiccionarioTextos diccionario;
+        private final boolean fecha1904;
+        private byte[] estilosFecha = new byte[64];
+
+        private final TipoCelda[] tipos = new TipoCelda[COLUMNAS];
+        private final String[] atributosT = new String[COLUMNAS];
+        private final int[] estilos = new int[COLUMNAS];
+
+        // Fecha usada cuando la celda no trae una fecha válida
+        private final int hoy = (int) LocalDate.now().toEpochDay();
+
+        DecodificadorFila(StylesTable styles, IntFunction<String> sharedStrings, DiccionarioTextos diccionario,
+                          boolean fecha1904) {
+            this.styles = styles;
+            this.sharedStrings = sharedStrings;
+            this.diccionario = diccionario;
+            this.fecha1904 = fecha1904;
         }
 
-        // Intentar parsear string
-        String dateStr = getCellValueAsString(cell);
-        try {
-            return LocalDate.parse(dateStr);
-        } catch (Exception e) {
+        void decodificar(CeldasFila fila, int numeroFila, SueldoChunk destino) {
+            destino.agregar(numeroFila,
+                    texto(fila, 0),
+                    texto(fila, 1),
+                    textoCanonico(fila, 2),
+                    centavos(fila, 3),
+                    centavos(fila, 4),
+                    centavos(fila, 5),
+                    centavos(fila, 6),
+                    textoCanonico(fila, 7),
+                    diaEpoch(fila, 8));
+        }
+
+        private TipoCelda tipoDe(CeldasFila fila, int columna) {
+            String t = fila.tipos[columna];
+            int estilo = fila.estilos[columna];
+
+            TipoCelda tipo = tipos[columna];
+            if (tipo == null) {
+                tipo = clasificar(t, estilo);
+                tipos[columna] = tipo;
+                atributosT[columna] = t;
+                estilos[columna] = estilo;
+                return tipo;
+            }
+
+            if (estilo == estilos[columna] && Objects.equals(t, atributosT[columna])) {
+                return tipo;
+            }
+            // Celda que se desvía del tipo inferido para la columna
+            return clasificar(t, estilo);
+        }
+
+        private TipoCelda clasificar(String t, int estilo) {
+            if (t == null || "n".equals(t)) {
+                return esFecha(estilo) ? TipoCelda.FECHA : TipoCelda.NUMERO;
+            }
+            switch (t) {
+                case "s":
+                    return TipoCelda.TEXTO_COMPARTIDO;
+                case "inlineStr":
+                case "str":
+                    return TipoCelda.TEXTO;
+                case "b":
+                    return TipoCelda.BOOLEANO;
+                default:
+                    return TipoCelda.ERROR;
+            }
+        }
+
+        private boolean esFecha(int estilo) {
+            if (styles == null || estilo < 0) return false;
+
+            if (estilo >= estilosFecha.length) {
+                estilosFecha = Arrays.copyOf(estilosFecha, Math.max(estilo + 1, estilosFecha.length * 2));
+            }
+
+            if (estilosFecha[estilo] == ESTILO_DESCONOCIDO) {
+                boolean fecha = false;
+                if (estilo < styles.getNumCellStyles()) {
+                    XSSFCellStyle cellStyle = styles.getStyleAt(estilo);
+                    fecha = cellStyle != null && DateUtil.isADateFormat(
+                            cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+                }
+                estilosFecha[estilo] = fecha ? ESTILO_FECHA : ESTILO_NUMERO;
+            }
+            return estilosFecha[estilo] == ESTILO_FECHA;
+        }
+
+        private String texto(CeldasFila fila, int columna) {
+            if (!fila.presentes[columna]) return "";
+
+            StringBuilder crudo = fila.valores[columna];
+            switch (tipoDe(fila, columna)) {
+                case TEXTO_COMPARTIDO:
+                    return sharedStrings.apply(parsearEntero(crudo, 0)).trim();
+                case TEXTO:
+                    return crudo.toString().trim();
+                case NUMERO:
+                    return enteroComoTexto(crudo);
+                case FECHA:
+                    return fechaSerial(crudo).toString();
+                case BOOLEANO:
+                    return String.valueOf(crudo.length() > 0 && crudo.charAt(0) == '1');
+                default:
+                    return "";
+            }
+        }
+
+        /**
+         * Texto de una columna de baja cardinalidad: las shared strings se resuelven una vez
+         * por índice y el resto se reemplaza por la instancia canónica del diccionario.
+         */
+        private String textoCanonico(CeldasFila fila, int columna) {
+            if (fila.presentes[columna] && tipoDe(fila, columna) == TipoCelda.TEXTO_COMPARTIDO) {
+                return diccionario.compartido(parsearEntero(fila.valores[columna], 0), sharedStrings);
+            }
+            return diccionario.canonico(texto(fila, columna));
+        }
+
+        /**
+         * Montos en centavos decodificados directamente del texto crudo de la celda.
+         */
+        private long centavos(CeldasFila fila, int columna) {
+            if (!fila.presentes[columna]) return 0;
+
+            StringBuilder crudo = fila.valores[columna];
+            switch (tipoDe(fila, columna)) {
+                case NUMERO:
+                case FECHA:
+                case TEXTO:
+                    return Centavos.parsearOCero(crudo);
+                case TEXTO_COMPARTIDO:
+                    return Centavos.parsearOCero(sharedStrings.apply(parsearEntero(crudo, 0)));
+                default:
+                    return 0;
+            }
+        }
+
+        private int diaEpoch(CeldasFila fila, int columna) {
+            if (!fila.presentes[columna]) return hoy;
+
+            StringBuilder crudo = fila.valores[columna];
+            switch (tipoDe(fila, columna)) {
+                case FECHA:
+                    return (int) fechaSerial(crudo).toEpochDay();
+                case TEXTO_COMPARTIDO:
+                    return (int) fechaDeTexto(sharedStrings.apply(parsearEntero(crudo, 0))).toEpochDay();
+                case TEXTO:
+                    return (int) fechaDeTexto(crudo.toString()).toEpochDay();
+                default:
+                    return hoy;
+            }
+        }
+
+        /**
+         * Números usados como texto (p. ej. número de empleado): se toma la parte entera.
+         */
+        private static String enteroComoTexto(CharSequence crudo) {
+            boolean soloDigitos = crudo.length() > 0;
+            for (int i = 0; i < crudo.length() && soloDigitos; i++) {
+                char c = crudo.charAt(i);
+                soloDigitos = (c >= '0' && c <= '9') || (i == 0 && c == '-');
+            }
+            if (soloDigitos) {
+                return crudo.toString();
+            }
+
+            try {
+                return String.valueOf((long) Double.parseDouble(crudo.toString()));
+            } catch (NumberFormatException e) {
+                return crudo.toString().trim();
+            }
+        }
+
+        /**
+         * Fecha a partir del serial de Excel: solo interesa la parte entera (días). Respeta el
+         * sistema de fechas del libro (1900 o 1904).
+         */
+        private LocalDate fechaSerial(CharSequence crudo) {
+            int fin = 0;
+            while (fin < crudo.length() && crudo.charAt(fin) >= '0' && crudo.charAt(fin) <= '9') {
+                fin++;
+            }
+            int serial = fin > 0 ? parsearEntero(crudo.subSequence(0, fin), -1) : -1;
+
+            if (fecha1904 && serial >= 0) {
+                return LocalDate.ofEpochDay(serial - SERIAL_EPOCH_1904);
+            }
+            if (!fecha1904 && serial >= SERIAL_MARZO_1900) {
+                return LocalDate.ofEpochDay(serial - SERIAL_EPOCH);
+            }
+
+            try {
+                double valor = Double.parseDouble(crudo.toString());
+                if (DateUtil.isValidExcelDate(valor)) {
+                    return DateUtil.getLocalDateTime(valor, fecha1904).toLocalDate();
+                }
+            } catch (NumberFormatException e) {
+                // fecha inválida, se usa la fecha actual
+            }
             return LocalDate.now();
         }
+
+        private static LocalDate fechaDeTexto(String valor) {
+            try {
+                return LocalDate.parse(valor.trim());
+            } catch (Exception e) {
+                return LocalDate.now();
+            }
+        }
     }
 
-    public boolean validarFormato(Path excelPath) {
-        try (FileInputStream fis = new FileInputStream(excelPath.toFile());
-             Workbook workbook = new XSSFWorkbook(fis)) {
+    /**
+     * Celdas crudas de la fila actual (atributo t, estilo y texto de {@code <v>} o {@code <is>}),
+     * reutilizadas entre filas.
+     */
+    private static class CeldasFila {
 
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
+        final String[] tipos = new String[COLUMNAS];
+        final int[] estilos = new int[COLUMNAS];
+        final StringBuilder[] valores = new StringBuilder[COLUMNAS];
+        final boolean[] presentes = new boolean[COLUMNAS];
 
-            if (headerRow == null || headerRow.getLastCellNum() < 9) {
-                return false;
+        CeldasFila() {
+            for (int i = 0; i < COLUMNAS; i++) {
+                valores[i] = new StringBuilder(32);
             }
+        }
 
-            // Validar headers esperados
-            String[] expectedHeaders = {
-                    "Numero Empleado", "Nombre Completo", "Puesto",
-                    "Salario Base", "Bonos", "Deducciones",
-                    "Salario Neto", "Periodo Pago", "Fecha Pago"
-            };
-
-            for (int i = 0; i < expectedHeaders.length; i++) {
-                Cell cell = headerRow.getCell(i);
-                if (cell == null || !getCellValueAsString(cell)
-                        .equalsIgnoreCase(expectedHeaders[i].replace(" ", ""))) {
-                    return false;
+        void limpiar() {
+            Arrays.fill(presentes, false);
+        }
+    }
+
+    /**
+     * Handler SAX de la hoja: entrega las celdas de cada fila del rango en crudo al
+     * decodificador y corta el parseo en cuanto se procesa la última fila solicitada.
+     */
+    private static class HojaHandler extends DefaultHandler {
+
+        private final int startRow;
+        private final int endRow;
+        private final DecodificadorFila decodificador;
+        private final SueldoChunk buffer;
+        private final int tamanoLote;
+        private final Consumer<SueldoChunk> alCompletarLote;
+        private final CeldasFila celdas = new CeldasFila();
+
+        private int fila = -1;
+        private int columna = -1;
+        private boolean enRango;
+        private boolean enInline;
+        private boolean capturando;
+
+        HojaHandler(int startRow, int endRow, DecodificadorFila decodificador, SueldoChunk buffer,
+                    int tamanoLote, Consumer<SueldoChunk> alCompletarLote) {
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.decodificador = decodificador;
+            this.buffer = buffer;
+            this.tamanoLote = tamanoLote;
+            this.alCompletarLote = alCompletarLote;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atributos) {
+            switch (localName) {
+                case "row": {
+                    String r = atributos.getValue("r");
+                    fila = r != null ? parsearEntero(r, fila + 2) - 1 : fila + 1;
+                    if (fila > endRow) {
+                        throw new LecturaCompletaException();
+                    }
+                    enRango = fila >= startRow;
+                    columna = -1;
+                    celdas.limpiar();
+                    break;
                 }
+                case "c": {
+                    if (!enRango) return;
+                    String referencia = atributos.getValue("r");
+                    columna = referencia != null ? indiceColumna(referencia) : columna + 1;
+                    if (columna >= 0 && columna < COLUMNAS) {
+                        celdas.tipos[columna] = atributos.getValue("t");
+                        celdas.estilos[columna] = parsearEntero(atributos.getValue("s"), 0);
+                        celdas.valores[columna].setLength(0);
+                    }
+                    break;
+                }
+                case "is":
+                    enInline = true;
+                    break;
+                case "v":
+                    capturando = enRango && columna >= 0 && columna < COLUMNAS;
+                    break;
+                case "t":
+                    capturando = enRango && enInline && columna >= 0 && columna < COLUMNAS;
+                    break;
+                default:
+                    break;
             }
+        }
 
-            return true;
-        } catch (Exception e) {
-            log.error("Error validando formato: {}", e.getMessage());
-            return false;
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturando) {
+                celdas.valores[columna].append(ch, start, length);
+                celdas.presentes[columna] = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    capturando = false;
+                    break;
+                case "is":
+                    enInline = false;
+                    break;
+                case "row":
+                    if (enRango) {
+                        emitir();
+                    }
+                    if (fila >= endRow) {
+                        throw new LecturaCompletaException();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void emitir() {
+            try {
+                decodificador.decodificar(celdas, fila, buffer);
+            } catch (Exception e) {
+                log.warn("Error mapeando fila {}: {}", fila, e.getMessage());
+                return;
+            }
+
+            // Los errores del consumidor del lote deben propagarse
+            if (alCompletarLote != null && buffer.size() >= tamanoLote) {
+                alCompletarLote.accept(buffer);
+                buffer.limpiar();
+            }
+        }
+    }
+
+    /**
+     * Señal interna para detener el parser SAX una vez superado endRow.
+     */
+    private static class LecturaCompletaException extends RuntimeException {
+        LecturaCompletaException() {
+            super(null, null, false, false);
         }
     }
 }
@@ -1,21 +1,73 @@
 package com.tech.apicargamasiva.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tech.apicargamasiva.dto.ImportacionErrorDTO;
 import com.tech.apicargamasiva.model.ImportacionError;
 import com.tech.apicargamasiva.repository.ImportacionErrorRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
+@Slf4j
 public class ImportacionErrorService {
 
+    private static final String INSERT_ERROR = """
+            INSERT INTO importacion_errores
+            (job_id, row_number, numero_empleado, error_message, error_type, raw_data, retryable, created_at)
+            VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?)
+            ON CONFLICT (job_id, row_number) DO NOTHING
+            """;
+
     @Autowired
     private ImportacionErrorRepository repository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Inserta los errores de un chunk en un solo batch JDBC, sin pasar por entidades JPA. Las
+     * filas que ya tienen error se saltean: un chunk publicado dos veces (reenvío tras un
+     * timeout de confirmación) o reentregado no duplica sus errores.
+     */
     public void guardarErrores(List<ImportacionErrorDTO> errores) {
-        repository.saveAll(errores.);
+        if (errores.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        jdbcTemplate.batchUpdate(INSERT_ERROR, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ImportacionErrorDTO error = errores.get(i);
+
+                ps.setString(1, error.getJobId());
+                ps.setInt(2, error.getRowNumber());
+                ps.setString(3, error.getNumeroEmpleado());
+                ps.setString(4, error.getErrorMessage());
+                ps.setString(5, error.getErrorType());
+                ps.setString(6, aJson(error));
+                ps.setBoolean(7, Boolean.TRUE.equals(error.getRetryable()));
+                ps.setObject(8, error.getCreatedAt() != null ? error.getCreatedAt() : now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return errores.size();
+            }
+        });
     }
 
     public void guardarError(ImportacionError error) {
@@ -33,4 +85,17 @@ public class ImportacionErrorService {
     public void eliminarErroresPorJob(String jobId) {
         repository.deleteByJobId(jobId);
     }
+
+    private String aJson(ImportacionErrorDTO error) {
+        if (error.getRawData() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(error.getRawData());
+        } catch (JsonProcessingException e) {
+            log.warn("No se pudo serializar la fila {} del job {}: {}",
+                    error.getRowNumber(), error.getJobId(), e.getMessage());
+            return null;
+        }
+    }
 }
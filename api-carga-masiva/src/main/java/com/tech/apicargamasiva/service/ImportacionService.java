@@ -1,40 +1,49 @@
 package com.tech.apicargamasiva.service;
 
-import com.tech.apicargamasiva.config.RabbitMQConfig;
 import com.tech.apicargamasiva.dto.ChunkMessage;
 import com.tech.apicargamasiva.dto.ImportacionResponse;
 import com.tech.apicargamasiva.dto.JobStatusDTO;
-import com.tech.apicargamasiva.dto.ProgressUpdate;
+import com.tech.apicargamasiva.model.FormatoArchivo;
 import com.tech.apicargamasiva.model.ImportacionJob;
 import com.tech.apicargamasiva.repository.ImportacionJobRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.time.Duration;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class ImportacionService {
 
-    @Autowired
-    private RabbitTemplate rabbitTemplate;
-
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
     @Autowired
     private ExcelService excelService;
 
+    @Autowired
+    private CsvService csvService;
+
+    @Autowired
+    private SpillService spillService;
+
+    @Autowired
+    private EscritorSueldos escritorSueldos;
+
+    @Autowired
+    private ProgresoService progresoService;
+
     @Autowired
     private EmailService emailService;
 
@@ -42,10 +51,33 @@ public class ImportacionService {
     private ImportacionJobRepository jobRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private PublicadorProgreso publicadorProgreso;
+
+    @Autowired
+    private CacheEstadoJobs cacheEstadoJobs;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ControladorChunks controladorChunks;
+
+    @Autowired
+    private PublicadorChunks publicadorChunks;
+
+    @Autowired
+    private PlanificadorChunks planificadorChunks;
+
+    @Autowired
+    private ControlAdmision controlAdmision;
+
+    @Autowired
+    private LimpiezaArchivos limpiezaArchivos;
 
-    @Value("${importacion.chunk-size:1000}")
-    private int chunkSize;
+    // Proxy propio para que @Async aplique al invocar procesarAsync desde esta misma clase
+    @Lazy
+    @Autowired
+    private ImportacionService self;
 
     @Value("${importacion.temp-directory:./temp-uploads}")
     private String tempDirectory;
@@ -58,23 +90,50 @@ public class ImportacionService {
         // Guardar archivo temporalmente
         Path tempPath = guardarArchivo(file, jobId);
 
+        // Elegir motor de lectura según el content type
+        FormatoArchivo formato = FormatoArchivo.desde(file.getContentType(), file.getOriginalFilename());
+
         // Validar formato
-        if (!excelService.validarFormato(tempPath)) {
-            throw new IllegalArgumentException("Formato de Excel inválido. Revise los headers.");
+        boolean formatoValido = formato.isTexto()
+                ? csvService.validarFormato(tempPath, formato)
+                : excelService.validarFormato(tempPath);
+        if (!formatoValido) {
+            throw new IllegalArgumentException("Formato de " + formato + " inválido. Revise los headers.");
         }
 
+        // Admisión: si ya hay max-concurrent-jobs en proceso en el cluster, el job espera en cola
+        boolean admitido = controlAdmision.adquirir(jobId);
+
         // Crear registro de Job
         ImportacionJob job = ImportacionJob.builder()
                 .id(jobId)
                 .filename(file.getOriginalFilename())
                 .userEmail(userEmail)
-                .status(ImportacionJob.JobStatus.VALIDANDO)
+                .status(admitido ? ImportacionJob.JobStatus.VALIDANDO : ImportacionJob.JobStatus.EN_COLA)
                 .build();
 
-        jobRepository.save(job);
+        try {
+            jobRepository.save(job);
+        } catch (RuntimeException e) {
+            if (admitido) {
+                controlAdmision.liberar(jobId);
+            }
+            throw e;
+        }
+
+        if (!admitido) {
+            controlAdmision.encolar(jobId, tempPath, userEmail, formato);
+            log.info("🚦 Job {} en cola: no hay lugar para más importaciones simultáneas", jobId);
+
+            return ImportacionResponse.builder()
+                    .jobId(jobId)
+                    .message("Importación en cola; se iniciará automáticamente cuando haya capacidad")
+                    .statusUrl("/api/importacion/status/" + jobId)
+                    .build();
+        }
 
         // Procesar asíncronamente
-        procesarAsync(jobId, tempPath, userEmail);
+        self.procesarAsync(jobId, tempPath, userEmail, formato);
 
         return ImportacionResponse.builder()
                 .jobId(jobId)
@@ -83,57 +142,217 @@ public class ImportacionService {
                 .build();
     }
 
+    /**
+     * Arranca un job que esperaba en cola, una vez que {@link ControlAdmision} le dio lugar.
+     */
+    public void iniciarEncolado(String jobId, Path archivoPath, String userEmail, FormatoArchivo formato) {
+        ImportacionJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != ImportacionJob.JobStatus.EN_COLA) {
+            // Cancelado o eliminado mientras esperaba
+            controlAdmision.liberar(jobId);
+            return;
+        }
+
+        actualizarJob(jobId, ImportacionJob.JobStatus.VALIDANDO, null, null, null, null);
+        self.procesarAsync(jobId, archivoPath, userEmail, formato);
+    }
+
+    /**
+     * Cierra con error un job que no pudo salir de la cola (datos de arranque vencidos o error
+     * al arrancarlo): borra el archivo subido y avisa al usuario.
+     *
+     * @param archivoPath archivo del job, o null si se perdieron los datos de arranque
+     */
+    public void fallarEncolado(String jobId, Path archivoPath, String mensaje) {
+        ImportacionJob job = cerrarJob(jobId, j -> j.marcarComoError(mensaje));
+        if (job == null) {
+            return;
+        }
+
+        Path archivo = archivoPath != null ? archivoPath : rutaArchivo(jobId, job.getFilename());
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el archivo del job {}: {}", jobId, e.getMessage());
+        }
+
+        publicarProgreso(jobId);
+        emailService.enviarEmailError(job.getUserEmail(), jobId, mensaje);
+    }
+
     @Async("importacionExecutor")
-    public void procesarAsync(String jobId, Path excelPath, String userEmail) {
+    public void procesarAsync(String jobId, Path archivoPath, String userEmail, FormatoArchivo formato) {
         try {
-            log.info("Iniciando procesamiento de job: {}", jobId);
+            log.info("Iniciando procesamiento de job: {} ({})", jobId, formato);
+
+            // CSV/TSV: basta con indexar los offsets de fila sobre el mismo archivo.
+            // Excel: se parsea una sola vez a un spill indexado por fila.
+            Path spillPath = formato.isTexto() ? null : spillService.rutaSpill(jobId);
+            int totalRegistros = formato.isTexto()
+                    ? csvService.indexar(archivoPath, formato)
+                    : spillService.generarSpill(archivoPath, spillPath);
 
-            // Contar registros totales
-            int totalRegistros = excelService.contarRegistros(excelPath);
+            escritorSueldos.prepararJob(jobId);
 
             // Actualizar job
             actualizarJob(jobId, ImportacionJob.JobStatus.EN_PROCESO, totalRegistros, 0, 0, 0);
+            progresoService.iniciar(jobId, totalRegistros);
+
+            // Dividir en chunks y enviar a RabbitMQ de a poco, dimensionando cada uno según el
+            // rendimiento que informan los consumers
+            // Con confirmaciones del broker y pausa si la cola supera la marca alta
+            try (PublicadorChunks.Publicacion publicacion = publicadorChunks.abrir(jobId)) {
+                long inicioPublicacion = System.nanoTime();
+                int tamano = 0;
+                int numero = 0;
+                for (int i = 1; i <= totalRegistros; i += tamano) {
+                    if (!controladorChunks.esperarVentana(jobId, () -> jobCerrado(jobId))) {
+                        log.warn("⚠️ Job {} cerrado durante la publicación; se dejan de enviar chunks", jobId);
+                        return;
+                    }
+
+                    tamano = controladorChunks.siguienteTamano(tamano);
+                    ChunkMessage chunk = ChunkMessage.builder()
+                            .jobId(jobId)
+                            .filePath(archivoPath.toString())
+                            .spillPath(spillPath != null ? spillPath.toString() : null)
+                            .formato(formato)
+                            .startRow(i)
+                            .endRow(Math.min(i + tamano - 1, totalRegistros))
+                            .userEmail(userEmail)
+                            .chunkNumber(++numero)
+                            .build();
+
+                    // Prioridad según lo que le falta al job y el peso del usuario
+                    int prioridad = planificadorChunks.prioridad(
+                            userEmail, totalRegistros - i + 1, System.nanoTime() - inicioPublicacion);
+
+                    progresoService.chunkPublicado(jobId);
+                    publicacion.enviar(chunk, prioridad);
+
+                    log.debug("Chunk enviado: {} - {}", chunk.getStartRow(), chunk.getEndRow());
+                }
+            }
 
-            // Dividir en chunks y enviar a RabbitMQ
-            for (int i = 1; i <= totalRegistros; i += chunkSize) {
-                ChunkMessage chunk = ChunkMessage.builder()
-                        .jobId(jobId)
-                        .filePath(excelPath.toString())
-                        .startRow(i)
-                        .endRow(Math.min(i + chunkSize - 1, totalRegistros))
-                        .userEmail(userEmail)
-                        .build();
-
-                rabbitTemplate.convertAndSend(
-                        RabbitMQConfig.EXCHANGE,
-                        RabbitMQConfig.ROUTING_KEY,
-                        chunk
-                );
-
-                log.debug("Chunk enviado: {} - {}", chunk.getStartRow(), chunk.getEndRow());
+            // Si los consumers terminaron todos los chunks antes que la publicación, cierra el publicador
+            if (progresoService.terminarPublicacion(jobId)) {
+                finalizarJob(jobId, userEmail, formato,
+                        archivoPath.toString(), spillPath != null ? spillPath.toString() : null);
             }
 
         } catch (Exception e) {
             log.error("Error procesando importación {}: {}", jobId, e.getMessage(), e);
-            actualizarJob(jobId, ImportacionJob.JobStatus.ERROR, 0, 0, 0, 0);
+            // Con el job bloqueado: si un consumer o el fallback ya lo cerró (y liberó su lugar),
+            // no se pisa su estado
+            ImportacionJob job = cerrarJob(jobId, j -> j.marcarComoError(e.getMessage()));
+            if (job == null) {
+                return;
+            }
+            limpiezaArchivos.liberar(formato, archivoPath.toString(),
+                    formato.isTexto() ? null : spillService.rutaSpill(jobId).toString());
+            try {
+                escritorSueldos.finalizarJob(jobId);
+            } catch (Exception ex) {
+                log.warn("No se pudo limpiar el staging del job {}: {}", jobId, ex.getMessage());
+            }
+            publicarProgreso(jobId);
             emailService.enviarEmailError(userEmail, jobId, e.getMessage());
         }
     }
 
+    /**
+     * Cierra el job una vez terminados todos sus chunks. Lo ejecuta solo quien dejó en cero la
+     * cuenta de chunks pendientes (ver {@link ProgresoService}).
+     */
+    public void finalizarJob(String jobId, String userEmail, FormatoArchivo formato,
+                             String filePath, String spillPath) {
+        try {
+            // Lo que quede pendiente en Redis se escribe antes de cerrar el job
+            progresoService.volcar(jobId);
+
+            try {
+                // En modo merge por job aquí se vuelca el staging completo en sueldos
+                escritorSueldos.consolidarJob(jobId);
+            } catch (Exception e) {
+                log.error("💥 Error consolidando el job {}: {}", jobId, e.getMessage(), e);
+                ImportacionJob job = cerrarJob(jobId,
+                        j -> j.marcarComoError("Error consolidando la importación: " + e.getMessage()));
+                escritorSueldos.finalizarJob(jobId);
+                if (job != null) {
+                    limpiezaArchivos.liberar(formato, filePath, spillPath);
+                    publicarProgreso(jobId);
+                    emailService.enviarEmailError(userEmail, jobId, job.getErrorMessage());
+                }
+                return;
+            }
+
+            ImportacionJob job = cerrarJob(jobId, ImportacionJob::marcarComoCompletado);
+            if (job == null) {
+                return;
+            }
+
+            escritorSueldos.finalizarJob(jobId);
+            limpiezaArchivos.liberar(formato, filePath, spillPath);
+
+            log.info("🎉 Job {} COMPLETADO! Total: {}, Exitosos: {}, Errores: {}, Duración: {}",
+                    job.getId(),
+                    job.getTotalRegistros(),
+                    job.getExitosos(),
+                    job.getErrores(),
+                    job.calcularDuracion());
+
+            publicarProgreso(jobId);
+
+            // Enviar email de finalización
+            emailService.enviarEmailFinalizacion(userEmail, new JobStatusDTO(job));
+        } catch (Exception e) {
+            log.error("Error finalizando el job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    /**
+     * Aplica un cambio de estado con la fila del job bloqueada, para no pisar los contadores
+     * que el flusher de progreso incrementa en paralelo. Devuelve null si el job ya estaba
+     * cerrado (otro consumer o el fallback llegó antes). Quien lo cierra libera su lugar de
+     * admisión.
+     */
+    public ImportacionJob cerrarJob(String jobId, Consumer<ImportacionJob> cambio) {
+        ImportacionJob cerrado = transactionTemplate.execute(status -> {
+            ImportacionJob job = jobRepository.findParaActualizar(jobId)
+                    .orElseThrow(() -> new RuntimeException("Job no encontrado: " + jobId));
+            if (job.isCompleto()) {
+                return null;
+            }
+            cambio.accept(job);
+            return jobRepository.save(job);
+        });
+        if (cerrado != null && cerrado.isCompleto()) {
+            controlAdmision.liberar(jobId);
+        }
+        return cerrado;
+    }
+
+    private boolean jobCerrado(String jobId) {
+        return jobRepository.findById(jobId).map(ImportacionJob::isCompleto).orElse(true);
+    }
+
     private Path guardarArchivo(MultipartFile file, String jobId) throws IOException {
         Path uploadDir = Paths.get(tempDirectory);
         if (!Files.exists(uploadDir)) {
             Files.createDirectories(uploadDir);
         }
 
-        String filename = jobId + "_" + file.getOriginalFilename();
-        Path filePath = uploadDir.resolve(filename);
+        Path filePath = rutaArchivo(jobId, file.getOriginalFilename());
 
         Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
 
         return filePath;
     }
 
+    private Path rutaArchivo(String jobId, String filename) {
+        return Paths.get(tempDirectory).resolve(jobId + "_" + filename);
+    }
+
     public void actualizarJob(String jobId, ImportacionJob.JobStatus status, Integer total,
                               Integer procesados, Integer exitosos, Integer errores) {
 
@@ -149,31 +368,33 @@ public class ImportacionService {
         jobRepository.save(job);
 
         // Actualizar en Redis
-        redisTemplate.opsForValue().set("job:" + jobId, job, Duration.ofDays(7));
+        guardarEnRedis(job);
 
-        // Notificar via WebSocket
-        notificarProgreso(job);
+        // Notificar via WebSocket (agrupado por el publicador)
+        publicadorProgreso.publicar(job);
     }
 
-    private void notificarProgreso(ImportacionJob job) {
-        double progreso = job.getTotalRegistros() > 0
-                ? (job.getProcesados() * 100.0) / job.getTotalRegistros()
-                : 0;
-
-        ProgressUpdate update = ProgressUpdate.builder()
-                .jobId(job.getId())
-                .totalRegistros(job.getTotalRegistros())
-                .procesados(job.getProcesados())
-                .exitosos(job.getExitosos())
-                .errores(job.getErrores())
-                .progreso(progreso)
-                .status(job.getStatus().toString())
-                .build();
+    /**
+     * Refresca la copia en Redis y notifica por WebSocket el estado actual del job en la base.
+     */
+    public void publicarProgreso(String jobId) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            guardarEnRedis(job);
+            publicadorProgreso.publicar(job);
+        });
+    }
 
-        messagingTemplate.convertAndSend("/topic/importacion/" + job.getId(), update);
+    private void guardarEnRedis(ImportacionJob job) {
+        redisTemplate.opsForValue().set("job:" + job.getId(), job, Duration.ofDays(7));
+        cacheEstadoJobs.invalidar(job.getId());
     }
 
     public JobStatusDTO obtenerEstatus(String jobId) {
+        // Primero el near cache en memoria; en miss, Redis y luego la base
+        return cacheEstadoJobs.obtener(jobId, this::cargarEstatus);
+    }
+
+    private JobStatusDTO cargarEstatus(String jobId) {
         // Intentar primero desde Redis
         ImportacionJob job = (ImportacionJob) redisTemplate.opsForValue().get("job:" + jobId);
 
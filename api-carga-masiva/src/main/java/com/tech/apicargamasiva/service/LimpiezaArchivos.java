@@ -0,0 +1,79 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.model.FormatoArchivo;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Limpieza de los archivos de trabajo de un job al cerrarse (completado o con error).
+ *
+ * Borra el spill o el índice CSV con sus archivos asociados y avisa por pub/sub a todos los
+ * nodos para que descarten lo que tengan cacheado de esos archivos (diccionarios y filas
+ * duplicadas): cada consumer los carga al leer su primer chunk del job, no solo el nodo que
+ * termina cerrándolo.
+ */
+@Service
+@Slf4j
+public class LimpiezaArchivos implements MessageListener {
+
+    public static final String CANAL_ARCHIVOS = "jobs:archivos:liberados";
+
+    @Autowired
+    private SpillService spillService;
+
+    @Autowired
+    private CsvService csvService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisListenerContainer;
+
+    @PostConstruct
+    void iniciar() {
+        redisListenerContainer.addMessageListener(this, new ChannelTopic(CANAL_ARCHIVOS));
+    }
+
+    /**
+     * Borra los archivos de trabajo del job y libera las caches de todos los nodos.
+     *
+     * @param spillPath spill del Excel, o null si el job se lee de un CSV indexado
+     */
+    public void liberar(FormatoArchivo formato, String filePath, String spillPath) {
+        String ruta;
+        if (spillPath != null) {
+            spillService.eliminar(Paths.get(spillPath));
+            ruta = spillPath;
+        } else if (formato != null && formato.isTexto() && filePath != null) {
+            csvService.eliminarIndice(Paths.get(filePath));
+            ruta = filePath;
+        } else {
+            return;
+        }
+
+        try {
+            stringRedisTemplate.convertAndSend(CANAL_ARCHIVOS, ruta);
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo avisar la liberación de {}: {}", ruta, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Path ruta = Paths.get(new String(message.getBody(), StandardCharsets.UTF_8));
+        spillService.descartarCache(ruta);
+        csvService.descartarCache(ruta);
+    }
+}
@@ -0,0 +1,269 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Particiones de sueldos por periodo de pago (PARTITION BY LIST, ver init-db.sql).
+ *
+ * Cada periodo AAAA-MM tiene su tabla sueldos_AAAA_MM, que se crea la primera vez que un
+ * chunk trae ese periodo. Los periodos con otro formato quedan en sueldos_default. Si la base
+ * se creó con el esquema anterior (sueldos sin particionar) el servicio no hace nada y todo
+ * se sigue escribiendo en sueldos.
+ *
+ * Las escrituras siempre van a la tabla padre, que enruta por periodo: así ningún nodo escribe
+ * en una partición que otro eliminó por retención. Crear una partición mueve las filas del
+ * periodo desde sueldos_default y la adjunta bajo un advisory lock exclusivo por periodo;
+ * los escritores toman el mismo lock compartido ({@link #bloquearPeriodos}), así ninguna fila
+ * del periodo entra a sueldos_default entre el movimiento y el ATTACH.
+ *
+ * La retención elimina particiones con el mismo lock exclusivo, desde cualquier nodo. Por eso,
+ * ya con el lock compartido, el escritor comprueba que sus particiones sigan existiendo: si otro
+ * nodo eliminó una, la olvida y falla con una excepción transitoria, y el reintento del chunk
+ * la vuelve a crear en lugar de dejar sus filas en sueldos_default.
+ */
+@Service
+@Slf4j
+public class ParticionService {
+
+    private static final String TABLA = "sueldos";
+    private static final String TABLA_DEFAULT = "sueldos_default";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Transacción propia: una partición creada no debe deshacerse si falla el chunk que la pidió
+    private final TransactionTemplate transactionTemplate;
+
+    // Meses de historia a conservar; 0 = sin retención
+    @Value("${importacion.particiones.retencion-meses:0}")
+    private int retencionMeses;
+
+    // Periodos cuya partición ya existe (evita consultar el catálogo en cada chunk)
+    private final Set<String> existentes = ConcurrentHashMap.newKeySet();
+
+    private volatile Boolean particionada;
+
+    public ParticionService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isParticionada() {
+        Boolean valor = particionada;
+        if (valor == null) {
+            valor = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                    Boolean.class, TABLA));
+            particionada = valor;
+            log.info("🗂️ Tabla sueldos {}", valor ? "particionada por periodo_pago" : "sin particionar");
+        }
+        return valor;
+    }
+
+    /**
+     * Periodos con partición propia entre las filas válidas del chunk.
+     */
+    public List<String> periodos(SueldoChunk sueldos) {
+        List<String> periodos = new ArrayList<>();
+        if (!isParticionada()) {
+            return periodos;
+        }
+
+        // El periodo viene por diccionario: basta con revisar cada código una vez
+        boolean[] presentes = new boolean[sueldos.contarPeriodosPago()];
+        int[] validos = sueldos.indicesValidos();
+        for (int n = 0; n < sueldos.contarValidas(); n++) {
+            presentes[sueldos.getPeriodoPagoCodigo(validos[n])] = true;
+        }
+
+        for (int codigo = 0; codigo < presentes.length; codigo++) {
+            String periodo = sueldos.getPeriodoPagoPorCodigo(codigo);
+            if (presentes[codigo] && admiteParticion(periodo)) {
+                periodos.add(periodo);
+            }
+        }
+        return periodos;
+    }
+
+    /**
+     * Periodos con partición propia entre las filas de una tabla de staging.
+     */
+    public List<String> periodos(String tabla) {
+        List<String> periodos = new ArrayList<>();
+        if (!isParticionada()) {
+            return periodos;
+        }
+
+        for (String periodo : jdbcTemplate.queryForList(
+                "SELECT DISTINCT periodo_pago FROM " + tabla + " WHERE periodo_pago IS NOT NULL", String.class)) {
+            if (admiteParticion(periodo)) {
+                periodos.add(periodo);
+            }
+        }
+        return periodos;
+    }
+
+    /**
+     * Crea las particiones que falten para los periodos.
+     */
+    public void asegurarParticiones(Collection<String> periodos) {
+        for (String periodo : periodos) {
+            if (!existentes.contains(periodo)) {
+                crearParticion(periodo);
+            }
+        }
+    }
+
+    /**
+     * Toma, en la transacción en curso, el advisory lock compartido de cada periodo y comprueba
+     * que sus particiones sigan existiendo. Se llama después de {@link #asegurarParticiones}
+     * (que crea en otra transacción y toma el lock exclusivo) y antes de escribir, para no
+     * esperar un lock con tablas ya bloqueadas.
+     *
+     * @throws ConcurrencyFailureException si la retención eliminó alguna partición desde que se
+     *                                     aseguró; la próxima llamada a asegurarParticiones la crea
+     */
+    public void bloquearPeriodos(Collection<String> periodos) {
+        if (periodos.isEmpty()) {
+            return;
+        }
+
+        String[] particiones = periodos.stream().map(ParticionService::nombreParticion).toArray(String[]::new);
+        // MATERIALIZED: todos los locks se toman antes de mirar el catálogo
+        List<String> faltantes = jdbcTemplate.queryForList("""
+                WITH bloqueos AS MATERIALIZED (
+                    SELECT p, pg_advisory_xact_lock_shared(hashtext(p)) FROM unnest(?::text[]) AS p
+                )
+                SELECT p FROM bloqueos WHERE to_regclass(p) IS NULL
+                """, String.class, (Object) particiones);
+        if (faltantes.isEmpty()) {
+            return;
+        }
+
+        for (String particion : faltantes) {
+            existentes.remove(periodoDeParticion(particion));
+        }
+        throw new ConcurrencyFailureException("Particiones eliminadas por retención mientras se escribía: " + faltantes);
+    }
+
+    /**
+     * Borra los periodos anteriores a la retención configurada con DROP de la partición, en
+     * lugar de un DELETE masivo sobre sueldos.
+     */
+    @Scheduled(cron = "${importacion.particiones.cron-retencion:-}")
+    public void aplicarRetencion() {
+        if (retencionMeses <= 0 || !isParticionada()) {
+            return;
+        }
+
+        YearMonth limite = YearMonth.now().minusMonths(retencionMeses);
+        List<String> particiones = jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass(?)
+                """, String.class, TABLA);
+
+        // La retención corre en todos los nodos: de paso cada uno olvida las particiones que
+        // otro ya eliminó, para volver a crearlas si llega un chunk de ese periodo
+        Set<String> vigentes = new HashSet<>();
+        for (String particion : particiones) {
+            String periodo = periodoDeParticion(particion);
+            if (periodo != null) {
+                vigentes.add(periodo);
+            }
+        }
+        existentes.retainAll(vigentes);
+
+        for (String particion : particiones) {
+            String periodo = periodoDeParticion(particion);
+            if (periodo == null || !YearMonth.parse(periodo).isBefore(limite)) {
+                continue;
+            }
+            existentes.remove(periodo);
+            Boolean eliminada = transactionTemplate.execute(status -> {
+                jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", particion);
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT to_regclass(?) IS NOT NULL", Boolean.class, particion))) {
+                    return false;
+                }
+                jdbcTemplate.execute("ALTER TABLE " + TABLA + " DETACH PARTITION " + particion);
+                jdbcTemplate.execute("DROP TABLE " + particion);
+                return true;
+            });
+            if (Boolean.TRUE.equals(eliminada)) {
+                log.info("🧹 Partición {} eliminada por retención ({} meses)", particion, retencionMeses);
+            }
+        }
+    }
+
+    /**
+     * Crea la partición en una transacción serializada por advisory lock. Si sueldos_default ya
+     * tiene filas de ese periodo (p. ej. de antes de particionar), se mueven a la tabla nueva
+     * antes de adjuntarla; ATTACH lo exige.
+     */
+    private void crearParticion(String periodo) {
+        String particion = nombreParticion(periodo);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", particion);
+
+            Boolean existe = jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL", Boolean.class, particion);
+            if (Boolean.TRUE.equals(existe)) {
+                return;
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + particion
+                    + " (LIKE " + TABLA + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int movidas = jdbcTemplate.update("""
+                    WITH movidas AS (
+                        DELETE FROM %s WHERE periodo_pago = ? RETURNING *
+                    )
+                    INSERT INTO %s SELECT * FROM movidas
+                    """.formatted(TABLA_DEFAULT, particion), periodo);
+            // El periodo ya pasó por admiteParticion(): solo dígitos y guion
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " ATTACH PARTITION " + particion
+                    + " FOR VALUES IN ('" + periodo + "')");
+
+            log.info("🗂️ Partición {} creada ({} filas movidas desde {})", particion, movidas, TABLA_DEFAULT);
+        });
+
+        existentes.add(periodo);
+    }
+
+    static boolean admiteParticion(String periodo) {
+        return periodo != null && ValidacionService.esPeriodoValido(periodo);
+    }
+
+    static String nombreParticion(String periodo) {
+        return TABLA + "_" + periodo.replace('-', '_');
+    }
+
+    static String periodoDeParticion(String particion) {
+        String prefijo = TABLA + "_";
+        if (!particion.startsWith(prefijo)) {
+            return null;
+        }
+        String periodo = particion.substring(prefijo.length()).replace('_', '-');
+        return admiteParticion(periodo) ? periodo : null;
+    }
+}
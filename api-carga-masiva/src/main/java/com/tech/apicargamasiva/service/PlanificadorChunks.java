@@ -0,0 +1,94 @@
+package com.tech.apicargamasiva.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prioridad de cada chunk en la cola de chunks (cola con {@code x-max-priority}), para que los
+ * jobs chicos no esperen detrás de uno grande.
+ *
+ * La prioridad sale de las filas que le quedan al job desde ese chunk, divididas por el peso
+ * del usuario: hasta {@code filas-referencia} filas efectivas va con la prioridad máxima, y
+ * cada vez que se duplican baja un nivel. Un job de 500 filas pasa adelante de uno de 2M, y el
+ * grande sube de prioridad a medida que avanza. Para que un job grande no quede postergado
+ * indefinidamente por un flujo de jobs chicos, sube además un nivel por cada
+ * {@code envejecimiento-seg} desde que empezó a publicar.
+ *
+ * El throughput total no cambia: los consumers siguen ocupados todo el tiempo, solo cambia el
+ * orden. La ventana de chunks en vuelo por job (ver {@link ControladorChunks}) ya evita que un
+ * solo job llene la cola, así que el intercalado entre jobs también se da a igual prioridad.
+ */
+@Service
+@Slf4j
+public class PlanificadorChunks {
+
+    @Value("${importacion.planificador.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${importacion.planificador.max-prioridad:10}")
+    private int maxPrioridad;
+
+    @Value("${importacion.planificador.filas-referencia:1000}")
+    private long filasReferencia;
+
+    @Value("${importacion.planificador.envejecimiento-seg:60}")
+    private long envejecimientoSeg;
+
+    @Value("${importacion.planificador.peso-defecto:1.0}")
+    private double pesoDefecto;
+
+    // Peso por email de usuario, p. ej. "{'nomina@empresa.com': 4}"
+    @Value("#{${importacion.planificador.pesos:{:}}}")
+    private Map<String, Double> pesosConfigurados;
+
+    private final Map<String, Double> pesos = new HashMap<>();
+
+    @PostConstruct
+    void iniciar() {
+        pesosConfigurados.forEach((usuario, peso) -> {
+            if (peso != null && peso > 0) {
+                pesos.put(usuario.toLowerCase(Locale.ROOT), peso);
+            }
+        });
+        log.info("✅ Planificador de chunks {}: prioridades 0-{}, pesos por usuario={}",
+                habilitado ? "habilitado" : "deshabilitado", maxPrioridad, pesos.size());
+    }
+
+    public int getMaxPrioridad() {
+        return maxPrioridad;
+    }
+
+    public double peso(String userEmail) {
+        if (userEmail == null) {
+            return pesoDefecto;
+        }
+        return pesos.getOrDefault(userEmail.toLowerCase(Locale.ROOT), pesoDefecto);
+    }
+
+    /**
+     * Prioridad del próximo chunk de un job.
+     *
+     * @param filasRestantes   filas del job desde este chunk hasta el final
+     * @param nanosPublicando  tiempo desde que el job empezó a publicar chunks
+     */
+    public int prioridad(String userEmail, long filasRestantes, long nanosPublicando) {
+        if (!habilitado) {
+            return 0;
+        }
+
+        double efectivas = Math.max(1, filasRestantes) / peso(userEmail);
+        int niveles = 0;
+        for (double limite = filasReferencia; efectivas > limite && niveles < maxPrioridad; limite *= 2) {
+            niveles++;
+        }
+
+        long envejecimiento = envejecimientoSeg > 0 ? nanosPublicando / (envejecimientoSeg * 1_000_000_000L) : 0;
+        return (int) Math.min(maxPrioridad, maxPrioridad - niveles + envejecimiento);
+    }
+}
@@ -0,0 +1,214 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.repository.ImportacionJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Contadores de progreso de cada job en un hash de Redis ({@code job:{id}:progreso}).
+ *
+ * Los consumers solo hacen HINCRBY (vía script, un único round trip) y no se bloquean entre
+ * sí. Además de los totales, el hash acumula los incrementos aún no escritos en la base;
+ * un flusher periódico los drena y los aplica con {@code incrementarContadores}, así
+ * importacion_jobs se actualiza a lo sumo una vez por intervalo y por job.
+ *
+ * El hash lleva también la cuenta regresiva de chunks pendientes ({@code chunks_pendientes}).
+ * Arranca en 1, el "token" del publicador, sube antes de publicar cada chunk y baja al
+ * terminar cada chunk y al terminar la publicación: quien la lleve a cero cierra el job, y
+ * eso le pasa a exactamente uno. Cada chunk se anota en un set, así una reentrega del mismo
+ * chunk no cuenta dos veces ni su progreso ni su fin.
+ */
+@Service
+@Slf4j
+public class ProgresoService {
+
+    private static final String CLAVE_PENDIENTES = "jobs:progreso:pendientes";
+
+    // Miembro del set de terminados que representa el fin de la publicación
+    private static final String PUBLICADOR = "publicador";
+
+    // KEYS: hash del job, set de pendientes, set de chunks terminados
+    // ARGV: chunk, procesados, exitosos, errores, ttl, jobId
+    private static final RedisScript<List> TERMINAR = new DefaultRedisScript<>("""
+            if redis.call('SADD', KEYS[3], ARGV[1]) == 0 then
+                return {-1, 0, 0, 0, -1}
+            end
+            redis.call('EXPIRE', KEYS[3], ARGV[5])
+            local p = redis.call('HINCRBY', KEYS[1], 'procesados', ARGV[2])
+            local e = redis.call('HINCRBY', KEYS[1], 'exitosos', ARGV[3])
+            local r = redis.call('HINCRBY', KEYS[1], 'errores', ARGV[4])
+            if tonumber(ARGV[2]) > 0 then
+                redis.call('HINCRBY', KEYS[1], 'pendiente_procesados', ARGV[2])
+                redis.call('HINCRBY', KEYS[1], 'pendiente_exitosos', ARGV[3])
+                redis.call('HINCRBY', KEYS[1], 'pendiente_errores', ARGV[4])
+                redis.call('SADD', KEYS[2], ARGV[6])
+            end
+            local restantes = redis.call('HINCRBY', KEYS[1], 'chunks_pendientes', -1)
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            local total = tonumber(redis.call('HGET', KEYS[1], 'total') or '-1')
+            return {total, p, e, r, restantes}
+            """, List.class);
+
+    // KEYS: hash del job, set de pendientes | ARGV: jobId
+    private static final RedisScript<List> DRENAR = new DefaultRedisScript<>("""
+            redis.call('SREM', KEYS[2], ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return {0, 0, 0}
+            end
+            local v = redis.call('HMGET', KEYS[1], 'pendiente_procesados', 'pendiente_exitosos', 'pendiente_errores')
+            redis.call('HSET', KEYS[1], 'pendiente_procesados', 0, 'pendiente_exitosos', 0, 'pendiente_errores', 0)
+            return {tonumber(v[1] or '0'), tonumber(v[2] or '0'), tonumber(v[3] or '0')}
+            """, List.class);
+
+    // Devuelve un drenado que no se pudo escribir en la base
+    // KEYS: hash del job, set de pendientes | ARGV: procesados, exitosos, errores, jobId
+    private static final RedisScript<Long> DEVOLVER = new DefaultRedisScript<>("""
+            redis.call('HINCRBY', KEYS[1], 'pendiente_procesados', ARGV[1])
+            redis.call('HINCRBY', KEYS[1], 'pendiente_exitosos', ARGV[2])
+            redis.call('HINCRBY', KEYS[1], 'pendiente_errores', ARGV[3])
+            return redis.call('SADD', KEYS[2], ARGV[4])
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ImportacionJobRepository jobRepository;
+
+    @Lazy
+    @Autowired
+    private ImportacionService importacionService;
+
+    @Value("${importacion.progreso.ttl-horas:168}")
+    private long ttlHoras;
+
+    /**
+     * Avance del job después de terminar un chunk. {@code ultimo} es verdadero solo para quien
+     * dejó la cuenta de chunks pendientes en cero. Una reentrega ya contada devuelve todo en -1/0.
+     */
+    public record Avance(long total, long procesados, long exitosos, long errores, boolean ultimo) {
+    }
+
+    public static String clave(String jobId) {
+        return "job:" + jobId + ":progreso";
+    }
+
+    private static String claveTerminados(String jobId) {
+        return "job:" + jobId + ":chunks:terminados";
+    }
+
+    /**
+     * Inicializa el hash del job con el total de registros y el token del publicador, antes
+     * de publicar los chunks.
+     */
+    public void iniciar(String jobId, int totalRegistros) {
+        String clave = clave(jobId);
+        stringRedisTemplate.opsForHash().putAll(clave, Map.of(
+                "total", String.valueOf(totalRegistros),
+                "chunks_pendientes", "1"));
+        stringRedisTemplate.expire(clave, Duration.ofHours(ttlHoras));
+    }
+
+    /**
+     * Cuenta un chunk más; se llama antes de publicarlo para que la cuenta nunca llegue a cero
+     * con chunks aún en vuelo.
+     */
+    public void chunkPublicado(String jobId) {
+        stringRedisTemplate.opsForHash().increment(clave(jobId), "chunks_pendientes", 1);
+    }
+
+    /**
+     * Chunks publicados que aún no terminaron (sin contar el token del publicador).
+     */
+    public long chunksEnVuelo(String jobId) {
+        Object valor = stringRedisTemplate.opsForHash().get(clave(jobId), "chunks_pendientes");
+        return valor != null ? Long.parseLong(valor.toString()) - 1 : 0;
+    }
+
+    /**
+     * Libera el token del publicador. Devuelve true si todos los chunks ya habían terminado y
+     * le toca al publicador cerrar el job.
+     */
+    public boolean terminarPublicacion(String jobId) {
+        return terminar(jobId, PUBLICADOR, 0, 0, 0).ultimo();
+    }
+
+    /**
+     * Registra el progreso del chunk (identificado por su fila inicial) y lo descuenta de los
+     * pendientes, en un solo script atómico.
+     */
+    public Avance terminarChunk(String jobId, int filaInicial, int procesados, int exitosos, int errores) {
+        return terminar(jobId, String.valueOf(filaInicial), procesados, exitosos, errores);
+    }
+
+    private Avance terminar(String jobId, String chunk, int procesados, int exitosos, int errores) {
+        List<?> r = stringRedisTemplate.execute(TERMINAR,
+                List.of(clave(jobId), CLAVE_PENDIENTES, claveTerminados(jobId)),
+                chunk, String.valueOf(procesados), String.valueOf(exitosos), String.valueOf(errores),
+                String.valueOf(ttlHoras * 3600), jobId);
+
+        return new Avance(
+                ((Number) r.get(0)).longValue(),
+                ((Number) r.get(1)).longValue(),
+                ((Number) r.get(2)).longValue(),
+                ((Number) r.get(3)).longValue(),
+                ((Number) r.get(4)).longValue() == 0);
+    }
+
+    /**
+     * Escribe en importacion_jobs lo acumulado del job desde el último volcado.
+     *
+     * @return true si había algo que escribir
+     */
+    public boolean volcar(String jobId) {
+        List<?> r = stringRedisTemplate.execute(DRENAR, List.of(clave(jobId), CLAVE_PENDIENTES), jobId);
+
+        int procesados = ((Number) r.get(0)).intValue();
+        int exitosos = ((Number) r.get(1)).intValue();
+        int errores = ((Number) r.get(2)).intValue();
+        if (procesados == 0 && exitosos == 0 && errores == 0) {
+            return false;
+        }
+
+        try {
+            jobRepository.incrementarContadores(jobId, procesados, exitosos, errores, LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // Los incrementos vuelven al hash para el siguiente volcado
+            stringRedisTemplate.execute(DEVOLVER, List.of(clave(jobId), CLAVE_PENDIENTES),
+                    String.valueOf(procesados), String.valueOf(exitosos), String.valueOf(errores), jobId);
+            throw e;
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${importacion.progreso.flush-ms:1000}")
+    public void volcarPendientes() {
+        Set<String> jobs = stringRedisTemplate.opsForSet().members(CLAVE_PENDIENTES);
+        if (jobs == null || jobs.isEmpty()) {
+            return;
+        }
+
+        for (String jobId : jobs) {
+            try {
+                if (volcar(jobId)) {
+                    importacionService.publicarProgreso(jobId);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ No se pudo volcar el progreso del job {}: {}", jobId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.config.RabbitMQConfig;
+import com.tech.apicargamasiva.dto.ChunkMessage;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publicación de chunks con control de flujo.
+ *
+ * Antes de enviar mira la profundidad de la cola de chunks ({@code RabbitAdmin.getQueueInfo},
+ * como mucho una vez por intervalo): si supera la marca alta, el publicador se detiene hasta
+ * que baje de la marca baja. Los envíos usan publisher confirms y se confirman por lotes; un
+ * chunk rechazado por el broker (la cola usa {@code x-overflow: reject-publish}), devuelto por
+ * no tener ruta o sin confirmación a tiempo se reenvía con backoff. Ningún chunk se pierde en
+ * silencio: si los reintentos se agotan, la excepción llega al job.
+ */
+@Service
+@Slf4j
+public class PublicadorChunks {
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private RabbitAdmin rabbitAdmin;
+
+    @Value("${importacion.publicacion.marca-alta:50000}")
+    private long marcaAlta;
+
+    @Value("${importacion.publicacion.marca-baja:25000}")
+    private long marcaBaja;
+
+    // Cada cuánto se consulta la profundidad de la cola mientras se publica
+    @Value("${importacion.publicacion.intervalo-profundidad-ms:500}")
+    private long intervaloProfundidadMs;
+
+    @Value("${importacion.publicacion.espera-ms:200}")
+    private long esperaMs;
+
+    // Envíos sin confirmar antes de esperar las confirmaciones
+    @Value("${importacion.publicacion.lote-confirmacion:10}")
+    private int loteConfirmacion;
+
+    @Value("${importacion.publicacion.timeout-confirmacion-ms:30000}")
+    private long timeoutConfirmacionMs;
+
+    @Value("${importacion.publicacion.reintentos:10}")
+    private int reintentos;
+
+    // Chunks en vuelo por job (ver ControladorChunks): el lote de confirmación no puede superarla
+    @Value("${importacion.chunk-adaptativo.ventana:20}")
+    private int ventana;
+
+    @PostConstruct
+    void iniciar() {
+        // Con el lote por debajo de la ventana siempre hay un chunk confirmado que puede terminar,
+        // así la espera por ventana nunca queda trabada en chunks sin confirmar
+        if (loteConfirmacion >= ventana) {
+            loteConfirmacion = Math.max(1, ventana - 1);
+        }
+        log.info("✅ Publicador de chunks: marca alta={}, marca baja={}, lote de confirmación={}",
+                marcaAlta, marcaBaja, loteConfirmacion);
+    }
+
+    /**
+     * Abre una publicación para un job. Hay que cerrarla para esperar las últimas confirmaciones.
+     */
+    public Publicacion abrir(String jobId) {
+        return new Publicacion(jobId);
+    }
+
+    /**
+     * Envíos de un job desde un solo hilo, con las confirmaciones pendientes.
+     */
+    public class Publicacion implements AutoCloseable {
+
+        private final String jobId;
+        private final List<Envio> pendientes = new ArrayList<>();
+        private long siguienteControl = System.nanoTime();
+
+        private Publicacion(String jobId) {
+            this.jobId = jobId;
+        }
+
+        public void enviar(ChunkMessage chunk, int prioridad) throws InterruptedException {
+            controlarProfundidad();
+            pendientes.add(publicar(chunk, prioridad));
+            if (pendientes.size() >= loteConfirmacion) {
+                confirmar();
+            }
+        }
+
+        /**
+         * Espera las confirmaciones pendientes y reenvía lo que el broker no aceptó.
+         */
+        public void confirmar() throws InterruptedException {
+            for (int intento = 1; !pendientes.isEmpty(); intento++) {
+                List<Envio> rechazados = new ArrayList<>();
+                for (Envio envio : pendientes) {
+                    String motivo = esperarConfirmacion(envio.correlacion());
+                    if (motivo != null) {
+                        log.warn("⚠️ Chunk {} del job {} no aceptado ({}), se reenvía",
+                                envio.chunk().getChunkNumber(), jobId, motivo);
+                        rechazados.add(envio);
+                    }
+                }
+                pendientes.clear();
+                if (rechazados.isEmpty()) {
+                    return;
+                }
+                if (intento > reintentos) {
+                    throw new AmqpException("Se agotaron los reintentos publicando " + rechazados.size()
+                            + " chunks del job " + jobId);
+                }
+
+                // Backoff exponencial acotado; si el motivo es la cola llena, esperar a que baje
+                Thread.sleep(Math.min(esperaMs << Math.min(intento, 6), 30_000));
+                siguienteControl = System.nanoTime();
+                controlarProfundidad();
+                for (Envio envio : rechazados) {
+                    pendientes.add(publicar(envio.chunk(), envio.prioridad()));
+                }
+            }
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            confirmar();
+        }
+
+        private void controlarProfundidad() throws InterruptedException {
+            long ahora = System.nanoTime();
+            if (ahora - siguienteControl < 0) {
+                return;
+            }
+            siguienteControl = ahora + TimeUnit.MILLISECONDS.toNanos(intervaloProfundidadMs);
+
+            long profundidad = profundidad();
+            if (profundidad < marcaAlta) {
+                return;
+            }
+
+            log.info("⏸️ Cola de chunks con {} mensajes (marca alta {}): job {} en pausa",
+                    profundidad, marcaAlta, jobId);
+            // Lo ya enviado se confirma antes de esperar, para reintentar rechazos cuanto antes
+            confirmar();
+            while (profundidad > marcaBaja) {
+                Thread.sleep(esperaMs);
+                profundidad = profundidad();
+            }
+            log.info("▶️ Cola de chunks en {} mensajes: job {} reanuda la publicación", profundidad, jobId);
+            siguienteControl = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloProfundidadMs);
+        }
+    }
+
+    private record Envio(ChunkMessage chunk, int prioridad, CorrelationData correlacion) {
+    }
+
+    private Envio publicar(ChunkMessage chunk, int prioridad) {
+        CorrelationData correlacion = new CorrelationData(chunk.getJobId() + ":" + chunk.getStartRow());
+        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE, RabbitMQConfig.ROUTING_KEY, chunk,
+                mensaje -> {
+                    mensaje.getMessageProperties().setPriority(prioridad);
+                    return mensaje;
+                },
+                correlacion);
+        return new Envio(chunk, prioridad, correlacion);
+    }
+
+    /**
+     * Null si el broker aceptó y encoló el mensaje; si no, el motivo.
+     */
+    private String esperarConfirmacion(CorrelationData correlacion) throws InterruptedException {
+        try {
+            CorrelationData.Confirm confirm = correlacion.getFuture()
+                    .get(timeoutConfirmacionMs, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                return "nack: " + confirm.getReason();
+            }
+            if (correlacion.getReturned() != null) {
+                return "devuelto: " + correlacion.getReturned().getReplyText();
+            }
+            return null;
+        } catch (TimeoutException e) {
+            return "sin confirmación en " + timeoutConfirmacionMs + " ms";
+        } catch (ExecutionException e) {
+            return e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        }
+    }
+
+    private long profundidad() {
+        try {
+            QueueInformation info = rabbitAdmin.getQueueInfo(RabbitMQConfig.QUEUE);
+            return info != null ? info.getMessageCount() : 0;
+        } catch (Exception e) {
+            // Sin dato de profundidad se sigue publicando: el reject-publish de la cola es el respaldo
+            log.warn("⚠️ No se pudo consultar la profundidad de {}: {}", RabbitMQConfig.QUEUE, e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.ProgressUpdate;
+import com.tech.apicargamasiva.model.ImportacionJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publica el progreso de los jobs por WebSocket ({@code /topic/importacion/{jobId}}) a lo
+ * sumo una vez por intervalo y por job.
+ *
+ * {@link #publicar(ImportacionJob)} solo deja la última foto del job en un mapa; un scheduler
+ * propio la envía en el siguiente tick, así las actualizaciones intermedias se fusionan y los
+ * hilos que reportan progreso nunca esperan al broker. Una foto final (COMPLETADO, ERROR,
+ * CANCELADO) no la reemplaza ninguna posterior, así que el estado final siempre se envía.
+ */
+@Service
+@Slf4j
+public class PublicadorProgreso {
+
+    private static final String TOPICO = "/topic/importacion/";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${importacion.progreso.websocket-intervalo-ms:500}")
+    private long intervaloMs;
+
+    private final Map<String, ProgressUpdate> pendientes = new ConcurrentHashMap<>();
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    @PostConstruct
+    void iniciar() {
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("progreso-ws-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::emitir, Duration.ofMillis(intervaloMs));
+
+        log.info("✅ Publicador de progreso inicializado (un frame cada {} ms por job)", intervaloMs);
+    }
+
+    @PreDestroy
+    void detener() {
+        scheduler.shutdown();
+        emitir();
+    }
+
+    public void publicar(ImportacionJob job) {
+        ProgressUpdate update = ProgressUpdate.from(job);
+        pendientes.merge(job.getId(), update,
+                (anterior, nuevo) -> anterior.isFinalizado() && !nuevo.isFinalizado() ? anterior : nuevo);
+    }
+
+    private void emitir() {
+        for (String jobId : pendientes.keySet()) {
+            ProgressUpdate update = pendientes.remove(jobId);
+            if (update == null) {
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSend(TOPICO + jobId, update);
+            } catch (Exception e) {
+                log.warn("⚠️ No se pudo publicar el progreso del job {}: {}", jobId, e.getMessage());
+            }
+        }
+    }
+}
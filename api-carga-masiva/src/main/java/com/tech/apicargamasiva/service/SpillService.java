@@ -0,0 +1,341 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.ResultadoValidacion;
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.tech.apicargamasiva.util.DiccionarioTextos;
+import com.tech.apicargamasiva.util.FilasDuplicadas;
+import com.tech.apicargamasiva.util.IndiceFilas;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-división de uploads: el Excel se parsea una sola vez por job y las filas se vuelcan
+ * a un archivo binario compacto (spill) con un índice de offsets por fila. Los consumers
+ * mapean el spill en memoria y saltan directo a startRow sin volver a tocar el .xlsx.
+ *
+ * Formato del spill (v3): cabecera (magic + versión) y luego un registro por fila
+ * [int longitud][int fila][numeroEmpleado][nombreCompleto][int código puesto]
+ * [montos como long centavos][int código periodo][int fecha epochDay]. Los textos van con
+ * longitud u16; puesto y periodo se guardan como código del diccionario del job (archivo
+ * .dic junto al spill) o, si el diccionario se llenó, con código -1 seguido del texto.
+ */
+@Service
+@Slf4j
+public class SpillService {
+
+    private static final int MAGIC = 0x53504C31; // "SPL1"
+    private static final short VERSION = 3;
+    private static final int CABECERA_BYTES = Integer.BYTES + Short.BYTES;
+    private static final int TEXTO_NULO = 0xFFFF;
+    private static final int TEXTO_MAX_BYTES = 0xFFFE;
+    private static final int FILAS_POR_LOTE = 4096;
+
+    @Autowired
+    private ExcelService excelService;
+
+    @Autowired
+    private ValidacionService validacionService;
+
+    @Value("${importacion.temp-directory:./temp-uploads}")
+    private String tempDirectory;
+
+    // Diccionarios y filas duplicadas ya cargados por spill: cada consumer los lee una sola vez por job
+    private final Map<Path, String[]> diccionarios = new ConcurrentHashMap<>();
+    private final Map<Path, int[]> duplicados = new ConcurrentHashMap<>();
+
+    public Path rutaSpill(String jobId) {
+        return Paths.get(tempDirectory).resolve(jobId + ".spill");
+    }
+
+    public Path rutaIndice(Path spillPath) {
+        return spillPath.resolveSibling(spillPath.getFileName() + ".idx");
+    }
+
+    public Path rutaDiccionario(Path spillPath) {
+        return DiccionarioTextos.ruta(spillPath);
+    }
+
+    /**
+     * Recorre el Excel completo una única vez y genera el spill y su índice. En la misma
+     * pasada marca las filas cuya clave (empleado + periodo) repite una fila anterior válida.
+     *
+     * @return total de filas escritas
+     */
+    public int generarSpill(Path excelPath, Path spillPath) throws IOException {
+        long inicio = System.currentTimeMillis();
+
+        // La dimensión declarada por la hoja dimensiona el detector de duplicados de una vez,
+        // sin rehashes a medida que crece (acotado por si la dimensión es engañosa)
+        int filasDeclaradas = excelService.contarRegistros(excelPath);
+        DiccionarioTextos diccionario = new DiccionarioTextos();
+        FilasDuplicadas.Detector detector = new FilasDuplicadas.Detector(
+                Math.max(FILAS_POR_LOTE, Math.min(filasDeclaradas, 1 << 20)));
+        ResultadoValidacion resultado = validacionService.nuevoResultado();
+
+        try (EscritorSpill escritor = new EscritorSpill(spillPath, rutaIndice(spillPath), diccionario)) {
+            excelService.recorrerFilas(excelPath, 1, Integer.MAX_VALUE, new SueldoChunk(FILAS_POR_LOTE),
+                    diccionario, FILAS_POR_LOTE, lote -> {
+                        validacionService.validarReglas(lote, resultado);
+                        for (int i = 0; i < lote.size(); i++) {
+                            if (lote.tieneClave(i) && !resultado.tieneErrores(i)) {
+                                detector.registrar(lote.getFila(i), lote.hashClave(i));
+                            }
+                        }
+                        escritor.escribir(lote);
+                    });
+            escritor.finalizar();
+            diccionario.escribir(rutaDiccionario(spillPath));
+            detector.escribir(FilasDuplicadas.ruta(spillPath));
+
+            log.info("💾 Spill generado {}: {} filas ({} duplicadas), {} bytes, {} valores en diccionario, en {} ms",
+                    spillPath.getFileName(), escritor.filas, detector.getCantidad(), escritor.offset,
+                    diccionario.size(), System.currentTimeMillis() - inicio);
+            return escritor.filas;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Lee las filas [startRow, endRow] (ordinales base 1 sobre las filas de datos) sobre
+     * el buffer destino, mapeando únicamente la región del spill que las contiene.
+     */
+    public void leerChunk(Path spillPath, int startRow, int endRow, SueldoChunk destino) throws IOException {
+        IndiceFilas.Rango rango = IndiceFilas.rango(rutaIndice(spillPath), startRow - 1, endRow - 1);
+        if (rango.filas() == 0) {
+            return;
+        }
+
+        String[] diccionario = cargarDiccionario(spillPath);
+
+        try (FileChannel canal = FileChannel.open(spillPath, StandardOpenOption.READ)) {
+            validarCabecera(canal);
+
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, rango.inicio(), rango.longitud());
+            byte[] scratch = new byte[TEXTO_MAX_BYTES];
+
+            for (int i = 0; i < rango.filas(); i++) {
+                int longitud = buffer.getInt();
+                int siguiente = buffer.position() + longitud;
+
+                destino.agregar(
+                        buffer.getInt(),
+                        leerTexto(buffer, scratch),
+                        leerTexto(buffer, scratch),
+                        leerCodificado(buffer, scratch, diccionario),
+                        buffer.getLong(),
+                        buffer.getLong(),
+                        buffer.getLong(),
+                        buffer.getLong(),
+                        leerCodificado(buffer, scratch, diccionario),
+                        buffer.getInt());
+
+                buffer.position(siguiente);
+            }
+        }
+    }
+
+    /**
+     * Filas (número de fila de la hoja) que repiten la clave de una fila anterior del archivo.
+     */
+    public int[] filasDuplicadas(Path spillPath) throws IOException {
+        try {
+            return duplicados.computeIfAbsent(spillPath.toAbsolutePath().normalize(), ruta -> {
+                try {
+                    return FilasDuplicadas.leer(FilasDuplicadas.ruta(spillPath));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void eliminar(Path spillPath) {
+        descartarCache(spillPath);
+        try {
+            Files.deleteIfExists(spillPath);
+            Files.deleteIfExists(rutaIndice(spillPath));
+            Files.deleteIfExists(rutaDiccionario(spillPath));
+            Files.deleteIfExists(FilasDuplicadas.ruta(spillPath));
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar el spill {}: {}", spillPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Olvida el diccionario y las filas duplicadas cargados para el spill en este nodo.
+     */
+    public void descartarCache(Path spillPath) {
+        diccionarios.remove(spillPath.toAbsolutePath().normalize());
+        duplicados.remove(spillPath.toAbsolutePath().normalize());
+    }
+
+    private void validarCabecera(FileChannel canal) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_BYTES);
+        while (cabecera.hasRemaining() && canal.read(cabecera, cabecera.position()) >= 0) {
+            // leer hasta completar la cabecera
+        }
+        cabecera.flip();
+        if (cabecera.remaining() < CABECERA_BYTES || cabecera.getInt() != MAGIC) {
+            throw new IOException("Archivo spill inválido");
+        }
+        short version = cabecera.getShort();
+        if (version != VERSION) {
+            throw new IOException("Versión de spill no soportada: " + version);
+        }
+    }
+
+    private String[] cargarDiccionario(Path spillPath) throws IOException {
+        try {
+            return diccionarios.computeIfAbsent(spillPath.toAbsolutePath().normalize(), ruta -> {
+                try {
+                    return DiccionarioTextos.leer(rutaDiccionario(spillPath)).valores();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String leerCodificado(ByteBuffer buffer, byte[] scratch, String[] diccionario) {
+        int codigo = buffer.getInt();
+        return codigo == DiccionarioTextos.SIN_CODIGO ? leerTexto(buffer, scratch) : diccionario[codigo];
+    }
+
+    private String leerTexto(ByteBuffer buffer, byte[] scratch) {
+        int longitud = Short.toUnsignedInt(buffer.getShort());
+        if (longitud == TEXTO_NULO) {
+            return null;
+        }
+        buffer.get(scratch, 0, longitud);
+        return new String(scratch, 0, longitud, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe registros de longitud prefijada reutilizando un único buffer por fila.
+     * Recibe los lotes ya decodificados en columnas, por lo que los montos y la fecha
+     * pasan al registro sin materializar BigDecimal ni LocalDate.
+     */
+    private class EscritorSpill implements Closeable {
+
+        private final OutputStream out;
+        private final IndiceFilas.Escritor indice;
+        private final DiccionarioTextos diccionario;
+        private ByteBuffer registro = ByteBuffer.allocate(1024);
+        private long offset;
+        private int filas;
+
+        EscritorSpill(Path spillPath, Path indicePath, DiccionarioTextos diccionario) throws IOException {
+            this.diccionario = diccionario;
+            Files.createDirectories(spillPath.toAbsolutePath().getParent());
+            this.out = new BufferedOutputStream(Files.newOutputStream(spillPath), 1 << 16);
+            this.indice = IndiceFilas.escritor(indicePath);
+
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_BYTES).putInt(MAGIC).putShort(VERSION);
+            out.write(cabecera.array());
+            offset = CABECERA_BYTES;
+        }
+
+        void escribir(SueldoChunk lote) {
+            try {
+                for (int i = 0; i < lote.size(); i++) {
+                    escribir(lote, i);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void escribir(SueldoChunk lote, int i) throws IOException {
+            registro.clear();
+            registro.putInt(0); // longitud, se completa al final
+            registro.putInt(lote.getFila(i));
+            escribirTexto(lote.getNumeroEmpleado(i));
+            escribirTexto(lote.getNombreCompleto(i));
+            escribirCodificado(lote.getPuesto(i));
+            asegurarCapacidad(4 * Long.BYTES);
+            registro.putLong(lote.getSalarioBase(i));
+            registro.putLong(lote.getBonos(i));
+            registro.putLong(lote.getDeducciones(i));
+            registro.putLong(lote.getSalarioNeto(i));
+            escribirCodificado(lote.getPeriodoPago(i));
+            asegurarCapacidad(Integer.BYTES);
+            registro.putInt(lote.getFechaPago(i));
+
+            int longitud = registro.position();
+            registro.putInt(0, longitud - Integer.BYTES);
+
+            indice.agregar(offset);
+            out.write(registro.array(), 0, longitud);
+            offset += longitud;
+            filas++;
+        }
+
+        void finalizar() throws IOException {
+            out.flush();
+            indice.cerrar(offset);
+        }
+
+        private void escribirCodificado(String valor) {
+            int codigo = diccionario.codigo(valor);
+            asegurarCapacidad(Integer.BYTES);
+            registro.putInt(codigo);
+            if (codigo == DiccionarioTextos.SIN_CODIGO) {
+                escribirTexto(valor);
+            }
+        }
+
+        private void escribirTexto(String valor) {
+            if (valor == null) {
+                asegurarCapacidad(Short.BYTES);
+                registro.putShort((short) TEXTO_NULO);
+                return;
+            }
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            int longitud = Math.min(bytes.length, TEXTO_MAX_BYTES);
+            asegurarCapacidad(Short.BYTES + longitud);
+            registro.putShort((short) longitud);
+            registro.put(bytes, 0, longitud);
+        }
+
+        private void asegurarCapacidad(int bytes) {
+            if (registro.remaining() < bytes) {
+                ByteBuffer mayor = ByteBuffer.allocate(Math.max(registro.capacity() * 2, registro.position() + bytes));
+                registro.flip();
+                mayor.put(registro);
+                registro = mayor;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                indice.close();
+            }
+        }
+    }
+}
@@ -1,18 +1,86 @@
 package com.tech.apicargamasiva.service;
 
+import com.tech.apicargamasiva.dto.ResultadoValidacion;
+import com.tech.apicargamasiva.dto.SueldoChunk;
 import com.tech.apicargamasiva.dto.SueldoDTO;
+import com.tech.apicargamasiva.util.Centavos;
+import com.tech.apicargamasiva.util.ConjuntoLong;
+import com.tech.apicargamasiva.util.FilasDuplicadas;
 import jakarta.validation.*;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 @Service
 public class ValidacionService {
+
+    static final String MENSAJE_SALARIO_NETO = "Salario neto no puede ser mayor que salario base + bonos - deducciones";
+    private static final int SIN_REGLA = -1;
+
+    // DECIMAL(12, 2) en sueldos: 10 dígitos enteros y 2 decimales
+    static final long MAXIMO_CENTAVOS = 999_999_999_999L;
+
     private final Validator validator;
 
+    // Reglas de SueldoDTO compiladas una sola vez a partir de sus anotaciones
+    private final List<String> mensajes = new ArrayList<>();
+    private final ReglasTexto numeroEmpleado;
+    private final ReglasTexto nombreCompleto;
+    private final ReglasTexto puesto;
+    private final ReglasTexto periodoPago;
+    private final ReglasMonto salarioBase;
+    private final ReglasMonto bonos;
+    private final ReglasMonto deducciones;
+    private final ReglasMonto salarioNeto;
+    private final int codigoSalarioNeto;
+
+    // Reglas a nivel de chunk
+    private final int[] codigosRango = new int[4];
+    private final int codigoPeriodoFormato;
+    private final int codigoDuplicadoChunk;
+    private final int codigoDuplicadoArchivo;
+    private final long mascaraDuplicados;
+
+    @Value("${importacion.validacion.periodo-estricto:false}")
+    private boolean periodoEstricto;
+
+    private final ThreadLocal<EspacioTrabajo> espacios = ThreadLocal.withInitial(EspacioTrabajo::new);
+
     public ValidacionService() {
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
         this.validator = factory.getValidator();
+
+        this.numeroEmpleado = compilarTexto("numeroEmpleado");
+        this.nombreCompleto = compilarTexto("nombreCompleto");
+        this.puesto = compilarTexto("puesto");
+        this.periodoPago = compilarTexto("periodoPago");
+        this.salarioBase = compilarMonto("salarioBase");
+        this.bonos = compilarMonto("bonos");
+        this.deducciones = compilarMonto("deducciones");
+        this.salarioNeto = compilarMonto("salarioNeto");
+        this.codigoSalarioNeto = registrar(MENSAJE_SALARIO_NETO);
+        verificarCobertura();
+
+        this.codigosRango[0] = registrar("Salario base fuera de rango");
+        this.codigosRango[1] = registrar("Bonos fuera de rango");
+        this.codigosRango[2] = registrar("Deducciones fuera de rango");
+        this.codigosRango[3] = registrar("Salario neto fuera de rango");
+        this.codigoPeriodoFormato = registrar("Periodo de pago debe tener formato AAAA-MM");
+        this.codigoDuplicadoChunk = registrar("Número de empleado y periodo repetidos en el chunk");
+        this.codigoDuplicadoArchivo = registrar("Número de empleado y periodo repetidos en una fila anterior del archivo");
+        this.mascaraDuplicados = (1L << codigoDuplicadoChunk) | (1L << codigoDuplicadoArchivo);
     }
 
     public void validarSueldo(SueldoDTO sueldo) {
@@ -28,7 +96,288 @@ public class ValidacionService {
 
         // Validaciones de negocio
         if (sueldo.getSalarioBase().compareTo(sueldo.getSalarioNeto()) < 0) {
-            throw new ValidationException("Salario neto no puede ser mayor que salario base + bonos - deducciones");
+            throw new ValidationException(MENSAJE_SALARIO_NETO);
+        }
+    }
+
+    /**
+     * Resultado vacío con los mensajes de las reglas compiladas, para reutilizar entre chunks.
+     */
+    public ResultadoValidacion nuevoResultado() {
+        return new ResultadoValidacion(mensajes.toArray(new String[0]));
+    }
+
+    /**
+     * Tipo de error para importacion_errores: los duplicados se distinguen del resto.
+     */
+    public String tipoError(ResultadoValidacion resultado, int fila) {
+        return (resultado.getCodigos(fila) & ~mascaraDuplicados) == 0 ? "DUPLICATE_ERROR" : "VALIDATION_ERROR";
+    }
+
+    /**
+     * Aplica las mismas reglas que {@link #validarSueldo(SueldoDTO)} sobre las columnas del chunk,
+     * sin reflexión ni excepciones, más las reglas que necesitan ver el chunk completo: rango de
+     * los montos, formato del periodo y claves (empleado, periodo) repetidas. Cada regla recorre
+     * su columna completa; las fallas quedan como códigos por fila en el resultado.
+     *
+     * Solo las filas que pasan el resto de las reglas cuentan como primera aparición de su
+     * clave: una fila inválida no deja como duplicada a una válida posterior.
+     *
+     * @param duplicadosArchivo filas (según {@link SueldoChunk#getFila(int)}) que repiten una clave
+     *                          anterior del archivo, ordenadas; null si el archivo no pasó por la
+     *                          detección de duplicados, en cuyo caso solo se buscan dentro del chunk
+     */
+    public ResultadoValidacion validarChunk(SueldoChunk chunk, ResultadoValidacion resultado,
+                                            int[] duplicadosArchivo) {
+        validarReglas(chunk, resultado);
+
+        int filas = chunk.size();
+        if (duplicadosArchivo != null) {
+            if (duplicadosArchivo.length > 0) {
+                for (int i = 0; i < filas; i++) {
+                    if (FilasDuplicadas.contiene(duplicadosArchivo, chunk.getFila(i))) {
+                        resultado.marcar(i, codigoDuplicadoArchivo);
+                    }
+                }
+            }
+        } else {
+            ConjuntoLong claves = espacios.get().claves;
+            claves.limpiar();
+            for (int i = 0; i < filas; i++) {
+                if (chunk.tieneClave(i) && !resultado.tieneErrores(i) && !claves.agregar(chunk.hashClave(i))) {
+                    resultado.marcar(i, codigoDuplicadoChunk);
+                }
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Todas las reglas salvo las de duplicados. La detección de duplicados del archivo la usa
+     * para registrar solo las claves de filas válidas.
+     */
+    public ResultadoValidacion validarReglas(SueldoChunk chunk, ResultadoValidacion resultado) {
+        validarChunk(chunk, resultado);
+
+        int filas = chunk.size();
+        for (int i = 0; i < filas; i++) {
+            validarRango(chunk.getSalarioBase(i), i, 0, resultado);
+            validarRango(chunk.getBonos(i), i, 1, resultado);
+            validarRango(chunk.getDeducciones(i), i, 2, resultado);
+            validarRango(chunk.getSalarioNeto(i), i, 3, resultado);
+        }
+
+        if (periodoEstricto) {
+            // El periodo está codificado por diccionario: cada valor distinto se revisa una vez
+            boolean[] periodosValidos = espacios.get().periodos(chunk.contarPeriodosPago());
+            for (int codigo = 0; codigo < chunk.contarPeriodosPago(); codigo++) {
+                String periodo = chunk.getPeriodoPagoPorCodigo(codigo);
+                periodosValidos[codigo] = periodo == null || periodo.isBlank() || esPeriodoValido(periodo);
+            }
+            for (int i = 0; i < filas; i++) {
+                if (!periodosValidos[chunk.getPeriodoPagoCodigo(i)]) {
+                    resultado.marcar(i, codigoPeriodoFormato);
+                }
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Solo las reglas de las anotaciones de SueldoDTO y la regla de negocio.
+     */
+    public ResultadoValidacion validarChunk(SueldoChunk chunk, ResultadoValidacion resultado) {
+        int filas = chunk.size();
+        resultado.reiniciar(filas);
+
+        numeroEmpleado.validar(chunk::getNumeroEmpleado, filas, resultado);
+        nombreCompleto.validar(chunk::getNombreCompleto, filas, resultado);
+        puesto.validar(chunk::getPuesto, filas, resultado);
+        periodoPago.validar(chunk::getPeriodoPago, filas, resultado);
+
+        for (int i = 0; i < filas; i++) {
+            salarioBase.validar(chunk.getSalarioBase(i), i, resultado);
+            bonos.validar(chunk.getBonos(i), i, resultado);
+            deducciones.validar(chunk.getDeducciones(i), i, resultado);
+            salarioNeto.validar(chunk.getSalarioNeto(i), i, resultado);
+        }
+
+        // La regla de negocio solo aplica a filas que pasaron las anotaciones
+        for (int i = 0; i < filas; i++) {
+            if (!resultado.tieneErrores(i) && chunk.getSalarioBase(i) < chunk.getSalarioNeto(i)) {
+                resultado.marcar(i, codigoSalarioNeto);
+            }
+        }
+
+        return resultado;
+    }
+
+    private void validarRango(long centavos, int fila, int columna, ResultadoValidacion resultado) {
+        if (centavos != Centavos.INVALIDO && (centavos > MAXIMO_CENTAVOS || centavos < -MAXIMO_CENTAVOS)) {
+            resultado.marcar(fila, codigosRango[columna]);
+        }
+    }
+
+    /**
+     * AAAA-MM con mes 01..12, sin expresiones regulares.
+     */
+    static boolean esPeriodoValido(String periodo) {
+        if (periodo.length() != 7 || periodo.charAt(4) != '-') return false;
+        for (int i = 0; i < 7; i++) {
+            if (i != 4 && (periodo.charAt(i) < '0' || periodo.charAt(i) > '9')) return false;
+        }
+        int mes = (periodo.charAt(5) - '0') * 10 + (periodo.charAt(6) - '0');
+        return mes >= 1 && mes <= 12;
+    }
+
+    private int registrar(String mensaje) {
+        mensajes.add(mensaje);
+        return mensajes.size() - 1;
+    }
+
+    private ReglasTexto compilarTexto(String campo) {
+        ReglasTexto reglas = new ReglasTexto();
+        for (Annotation anotacion : campo(campo).getAnnotations()) {
+            if (anotacion instanceof NotBlank notBlank) {
+                reglas.codigoRequerido = registrar(notBlank.message());
+            } else if (anotacion instanceof NotNull notNull) {
+                reglas.codigoNulo = registrar(notNull.message());
+            } else if (anotacion instanceof Size size) {
+                reglas.minimo = size.min();
+                reglas.maximo = size.max();
+                reglas.codigoLongitud = registrar(size.message());
+            } else {
+                rechazar(campo, anotacion);
+            }
+        }
+        return reglas;
+    }
+
+    private ReglasMonto compilarMonto(String campo) {
+        ReglasMonto reglas = new ReglasMonto();
+        for (Annotation anotacion : campo(campo).getAnnotations()) {
+            if (anotacion instanceof NotNull notNull) {
+                reglas.codigoNulo = registrar(notNull.message());
+            } else if (anotacion instanceof DecimalMin decimalMin) {
+                long minimo = Centavos.de(new BigDecimal(decimalMin.value()));
+                // En centavos enteros "> x" equivale a ">= x + 1"
+                reglas.minimo = decimalMin.inclusive() ? minimo : minimo + 1;
+                reglas.codigoMinimo = registrar(decimalMin.message());
+            } else {
+                rechazar(campo, anotacion);
+            }
+        }
+        return reglas;
+    }
+
+    /**
+     * Si SueldoDTO gana un campo o una anotación que el motor compilado no conoce, es
+     * preferible fallar al arrancar que validar distinto que Hibernate Validator.
+     */
+    private void verificarCobertura() {
+        Set<String> compilados = Set.of("numeroEmpleado", "nombreCompleto", "puesto", "periodoPago",
+                "salarioBase", "bonos", "deducciones", "salarioNeto", "fechaPago");
+        for (Field field : SueldoDTO.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !compilados.contains(field.getName())) {
+                throw new IllegalStateException("Campo de SueldoDTO sin reglas compiladas: " + field.getName());
+            }
+        }
+        // fechaPago se guarda como epoch day y nunca es nula: @NotNull siempre se cumple
+        for (Annotation anotacion : campo("fechaPago").getAnnotations()) {
+            if (!(anotacion instanceof NotNull)) {
+                rechazar("fechaPago", anotacion);
+            }
+        }
+    }
+
+    private static Field campo(String nombre) {
+        try {
+            return SueldoDTO.class.getDeclaredField(nombre);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("SueldoDTO no tiene el campo " + nombre, e);
+        }
+    }
+
+    private static void rechazar(String campo, Annotation anotacion) {
+        throw new IllegalStateException("Restricción no soportada en SueldoDTO." + campo + ": "
+                + anotacion.annotationType().getSimpleName());
+    }
+
+    /**
+     * Estructuras reutilizadas por hilo entre chunks.
+     */
+    private static class EspacioTrabajo {
+
+        final ConjuntoLong claves = new ConjuntoLong();
+        private boolean[] periodos = new boolean[64];
+
+        boolean[] periodos(int distintos) {
+            if (periodos.length < distintos) {
+                periodos = new boolean[Math.max(distintos, periodos.length * 2)];
+            }
+            return periodos;
+        }
+    }
+
+    /**
+     * @NotBlank / @NotNull / @Size sobre una columna de texto.
+     */
+    private static class ReglasTexto {
+
+        int codigoRequerido = SIN_REGLA;
+        int codigoNulo = SIN_REGLA;
+        int codigoLongitud = SIN_REGLA;
+        int minimo;
+        int maximo = Integer.MAX_VALUE;
+
+        void validar(IntFunction<String> columna, int filas, ResultadoValidacion resultado) {
+            for (int i = 0; i < filas; i++) {
+                String valor = columna.apply(i);
+
+                if (valor == null) {
+                    // @Size considera válido el nulo
+                    if (codigoRequerido != SIN_REGLA) resultado.marcar(i, codigoRequerido);
+                    if (codigoNulo != SIN_REGLA) resultado.marcar(i, codigoNulo);
+                    continue;
+                }
+
+                if (codigoRequerido != SIN_REGLA && enBlanco(valor)) {
+                    resultado.marcar(i, codigoRequerido);
+                }
+                if (codigoLongitud != SIN_REGLA && (valor.length() < minimo || valor.length() > maximo)) {
+                    resultado.marcar(i, codigoLongitud);
+                }
+            }
+        }
+
+        private static boolean enBlanco(String valor) {
+            // Mismo criterio que NotBlankValidator (trim)
+            for (int i = 0; i < valor.length(); i++) {
+                if (valor.charAt(i) > ' ') return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @NotNull / @DecimalMin sobre una columna de montos en centavos.
+     */
+    private static class ReglasMonto {
+
+        int codigoNulo = SIN_REGLA;
+        int codigoMinimo = SIN_REGLA;
+        long minimo = Long.MIN_VALUE;
+
+        void validar(long centavos, int fila, ResultadoValidacion resultado) {
+            if (centavos == Centavos.INVALIDO) {
+                if (codigoNulo != SIN_REGLA) resultado.marcar(fila, codigoNulo);
+                return;
+            }
+            if (codigoMinimo != SIN_REGLA && centavos < minimo) {
+                resultado.marcar(fila, codigoMinimo);
+            }
         }
     }
 }
@@ -0,0 +1,192 @@
+package com.tech.apicargamasiva.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Montos de dinero como centavos en un long (escala fija de 2 decimales).
+ *
+ * Los parsers trabajan directamente sobre el texto crudo (chars del XML de la celda o bytes
+ * del CSV) sin crear Strings, doubles ni BigDecimals intermedios. El redondeo a 2 decimales
+ * es HALF_UP sobre el texto decimal, por lo que "25000.499999999996" da 2500050 exactos.
+ * Se aceptan signo, separadores de miles ",", símbolo "$", espacios y notación exponencial.
+ */
+public final class Centavos {
+
+    /**
+     * Valor devuelto cuando el texto no es un número válido o no cabe en un long.
+     */
+    public static final long INVALIDO = Long.MIN_VALUE;
+
+    private static final int MAX_DIGITOS = 18;
+    private static final long[] POTENCIAS = new long[MAX_DIGITOS + 1];
+
+    static {
+        POTENCIAS[0] = 1;
+        for (int i = 1; i < POTENCIAS.length; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10;
+        }
+    }
+
+    private Centavos() {
+    }
+
+    public static long parsear(CharSequence texto) {
+        return texto == null ? INVALIDO : parsear(texto, 0, texto.length());
+    }
+
+    public static long parsear(CharSequence texto, int desde, int hasta) {
+        Acumulador acumulador = new Acumulador();
+        for (int i = desde; i < hasta; i++) {
+            if (!acumulador.agregar(texto.charAt(i))) {
+                return INVALIDO;
+            }
+        }
+        return acumulador.resultado();
+    }
+
+    public static long parsear(byte[] bytes, int desde, int hasta) {
+        Acumulador acumulador = new Acumulador();
+        for (int i = desde; i < hasta; i++) {
+            if (!acumulador.agregar((char) (bytes[i] & 0xFF))) {
+                return INVALIDO;
+            }
+        }
+        return acumulador.resultado();
+    }
+
+    /**
+     * Igual que {@link #parsear(CharSequence)} pero los valores vacíos o inválidos se toman
+     * como cero, que es como se han importado siempre.
+     */
+    public static long parsearOCero(CharSequence texto) {
+        long centavos = parsear(texto);
+        return centavos == INVALIDO ? 0 : centavos;
+    }
+
+    public static long parsearOCero(byte[] bytes, int desde, int hasta) {
+        long centavos = parsear(bytes, desde, hasta);
+        return centavos == INVALIDO ? 0 : centavos;
+    }
+
+    public static long de(BigDecimal valor) {
+        if (valor == null) return INVALIDO;
+        try {
+            return valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return INVALIDO;
+        }
+    }
+
+    /**
+     * Materializa el BigDecimal (escala 2) solo cuando hace falta, p. ej. en el borde JDBC.
+     */
+    public static BigDecimal aBigDecimal(long centavos) {
+        return centavos == INVALIDO ? null : BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * Máquina de estados del parser: acumula hasta 18 dígitos significativos en la mantisa
+     * y el exponente decimal correspondiente; el redondeo se resuelve al final.
+     */
+    private static final class Acumulador {
+
+        private long mantisa;
+        private int digitos;
+        private int exponente;
+        private boolean negativo;
+        private boolean hayDigitos;
+        private boolean enFraccion;
+        private boolean enExponente;
+        private boolean exponenteNegativo;
+        private boolean hayDigitosExponente;
+        private int valorExponente;
+
+        boolean agregar(char c) {
+            if (enExponente) {
+                if (c >= '0' && c <= '9') {
+                    if (valorExponente > 1000) return false;
+                    valorExponente = valorExponente * 10 + (c - '0');
+                    hayDigitosExponente = true;
+                    return true;
+                }
+                if ((c == '-' || c == '+') && !hayDigitosExponente) {
+                    exponenteNegativo = c == '-';
+                    return true;
+                }
+                return c == ' ';
+            }
+
+            if (c >= '0' && c <= '9') {
+                hayDigitos = true;
+                if (mantisa == 0 && c == '0') {
+                    // ceros a la izquierda no son significativos
+                    if (enFraccion) exponente--;
+                    return true;
+                }
+                if (digitos < MAX_DIGITOS) {
+                    mantisa = mantisa * 10 + (c - '0');
+                    digitos++;
+                    if (enFraccion) exponente--;
+                } else {
+                    // dígitos más allá de la precisión de un long: se descartan
+                    if (!enFraccion) exponente++;
+                }
+                return true;
+            }
+
+            switch (c) {
+                case '.':
+                    if (enFraccion) return false;
+                    enFraccion = true;
+                    return true;
+                case '-':
+                    if (hayDigitos || negativo) return false;
+                    negativo = true;
+                    return true;
+                case 'e':
+                case 'E':
+                    if (!hayDigitos) return false;
+                    enExponente = true;
+                    return true;
+                case '+':
+                    return !hayDigitos;
+                case ',':
+                case '$':
+                case ' ':
+                case '\t':
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        long resultado() {
+            if (!hayDigitos || (enExponente && !hayDigitosExponente)) return INVALIDO;
+
+            int escala = exponente + 2 + (exponenteNegativo ? -valorExponente : valorExponente);
+            long centavos;
+
+            if (mantisa == 0) {
+                centavos = 0;
+            } else if (escala >= 0) {
+                if (escala > MAX_DIGITOS || mantisa > Long.MAX_VALUE / POTENCIAS[escala]) {
+                    return INVALIDO;
+                }
+                centavos = mantisa * POTENCIAS[escala];
+            } else if (-escala > MAX_DIGITOS) {
+                centavos = 0;
+            } else {
+                long divisor = POTENCIAS[-escala];
+                centavos = mantisa / divisor;
+                long resto = mantisa % divisor;
+                // HALF_UP: exactamente la mitad también redondea hacia arriba
+                if (resto * 2 >= divisor) {
+                    centavos++;
+                }
+            }
+
+            return negativo ? -centavos : centavos;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.tech.apicargamasiva.util;
+
+import com.tech.apicargamasiva.dto.ChunkMessage;
+import com.tech.apicargamasiva.model.FormatoArchivo;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formato binario de {@link ChunkMessage} para RabbitMQ.
+ *
+ * Cabecera de 3 bytes ('C', 'K', versión) y después un campo por atributo no nulo como
+ * [tag: 1 byte][longitud: int32][valor]. Los textos van en UTF-8 y los enteros como int32.
+ * Un lector ignora los tags que no conoce gracias a la longitud, así que agregar campos no
+ * requiere subir la versión; la versión solo cambia si cambia el formato en sí.
+ */
+public final class CodecChunkMessage {
+
+    public static final byte VERSION = 1;
+
+    private static final byte MAGIA_0 = 'C';
+    private static final byte MAGIA_1 = 'K';
+
+    private static final byte JOB_ID = 1;
+    private static final byte FILE_PATH = 2;
+    private static final byte SPILL_PATH = 3;
+    private static final byte FORMATO = 4;
+    private static final byte START_ROW = 5;
+    private static final byte END_ROW = 6;
+    private static final byte USER_EMAIL = 7;
+    private static final byte CHUNK_NUMBER = 8;
+    private static final byte TOTAL_CHUNKS = 9;
+
+    private CodecChunkMessage() {
+    }
+
+    public static boolean esBinario(byte[] bytes) {
+        return bytes.length >= 3 && bytes[0] == MAGIA_0 && bytes[1] == MAGIA_1;
+    }
+
+    public static byte[] codificar(ChunkMessage m) {
+        byte[] jobId = utf8(m.getJobId());
+        byte[] filePath = utf8(m.getFilePath());
+        byte[] spillPath = utf8(m.getSpillPath());
+        byte[] formato = m.getFormato() != null ? utf8(m.getFormato().name()) : null;
+        byte[] userEmail = utf8(m.getUserEmail());
+
+        int tamano = 3
+                + tamano(jobId) + tamano(filePath) + tamano(spillPath) + tamano(formato) + tamano(userEmail)
+                + tamano(m.getStartRow()) + tamano(m.getEndRow())
+                + tamano(m.getChunkNumber()) + tamano(m.getTotalChunks());
+
+        ByteBuffer buffer = ByteBuffer.allocate(tamano);
+        buffer.put(MAGIA_0).put(MAGIA_1).put(VERSION);
+        texto(buffer, JOB_ID, jobId);
+        texto(buffer, FILE_PATH, filePath);
+        texto(buffer, SPILL_PATH, spillPath);
+        texto(buffer, FORMATO, formato);
+        entero(buffer, START_ROW, m.getStartRow());
+        entero(buffer, END_ROW, m.getEndRow());
+        texto(buffer, USER_EMAIL, userEmail);
+        entero(buffer, CHUNK_NUMBER, m.getChunkNumber());
+        entero(buffer, TOTAL_CHUNKS, m.getTotalChunks());
+        return buffer.array();
+    }
+
+    public static ChunkMessage decodificar(byte[] bytes) {
+        if (!esBinario(bytes)) {
+            throw new IllegalArgumentException("No es un ChunkMessage binario");
+        }
+        if (bytes[2] != VERSION) {
+            throw new IllegalArgumentException("Versión de ChunkMessage no soportada: " + bytes[2]);
+        }
+
+        ChunkMessage m = new ChunkMessage();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 3, bytes.length - 3);
+        try {
+            while (buffer.hasRemaining()) {
+                byte tag = buffer.get();
+                int longitud = buffer.getInt();
+                int inicio = buffer.position();
+                if (longitud < 0 || longitud > buffer.remaining()) {
+                    throw new IllegalArgumentException("Longitud de campo inválida: " + longitud);
+                }
+
+                switch (tag) {
+                    case JOB_ID -> m.setJobId(texto(buffer, longitud));
+                    case FILE_PATH -> m.setFilePath(texto(buffer, longitud));
+                    case SPILL_PATH -> m.setSpillPath(texto(buffer, longitud));
+                    case FORMATO -> m.setFormato(FormatoArchivo.valueOf(texto(buffer, longitud)));
+                    case START_ROW -> m.setStartRow(buffer.getInt());
+                    case END_ROW -> m.setEndRow(buffer.getInt());
+                    case USER_EMAIL -> m.setUserEmail(texto(buffer, longitud));
+                    case CHUNK_NUMBER -> m.setChunkNumber(buffer.getInt());
+                    case TOTAL_CHUNKS -> m.setTotalChunks(buffer.getInt());
+                    default -> {
+                        // Campo de una versión más nueva del emisor
+                    }
+                }
+                buffer.position(inicio + longitud);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("ChunkMessage binario corrupto", e);
+        }
+        return m;
+    }
+
+    private static byte[] utf8(String valor) {
+        return valor != null ? valor.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int tamano(byte[] valor) {
+        return valor != null ? 1 + Integer.BYTES + valor.length : 0;
+    }
+
+    private static int tamano(Integer valor) {
+        return valor != null ? 1 + 2 * Integer.BYTES : 0;
+    }
+
+    private static void texto(ByteBuffer buffer, byte tag, byte[] valor) {
+        if (valor != null) {
+            buffer.put(tag).putInt(valor.length).put(valor);
+        }
+    }
+
+    private static void entero(ByteBuffer buffer, byte tag, Integer valor) {
+        if (valor != null) {
+            buffer.put(tag).putInt(Integer.BYTES).putInt(valor);
+        }
+    }
+
+    private static String texto(ByteBuffer buffer, int longitud) {
+        String valor = new String(buffer.array(), buffer.position(), longitud, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + longitud);
+        return valor;
+    }
+}
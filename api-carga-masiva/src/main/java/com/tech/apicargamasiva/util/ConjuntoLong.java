@@ -0,0 +1,134 @@
+package com.tech.apicargamasiva.util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de long con direccionamiento abierto (sondeo lineal) sobre un long[], sin boxing.
+ * Se usa para detectar claves repetidas a partir de su hash de 64 bits.
+ *
+ * El valor 0 marca un slot libre, por eso se guarda aparte si fue agregado.
+ */
+public class ConjuntoLong {
+
+    private static final long FNV_INICIO = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+    private static final long SEPARADOR = 0x1F;
+
+    private long[] slots;
+    private int tamano;
+    private boolean contieneCero;
+
+    public ConjuntoLong() {
+        this(1024);
+    }
+
+    public ConjuntoLong(int capacidadEsperada) {
+        slots = new long[capacidadPara(capacidadEsperada)];
+    }
+
+    /**
+     * Agrega el valor. Devuelve false si ya estaba.
+     */
+    public boolean agregar(long valor) {
+        if (valor == 0) {
+            if (contieneCero) return false;
+            contieneCero = true;
+            tamano++;
+            return true;
+        }
+
+        int mascara = slots.length - 1;
+        int slot = (int) mezclar(valor) & mascara;
+        while (slots[slot] != 0) {
+            if (slots[slot] == valor) return false;
+            slot = (slot + 1) & mascara;
+        }
+
+        slots[slot] = valor;
+        if (++tamano * 2 > slots.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    /**
+     * Vacía el conjunto conservando la capacidad alcanzada.
+     */
+    public void limpiar() {
+        Arrays.fill(slots, 0L);
+        tamano = 0;
+        contieneCero = false;
+    }
+
+    /**
+     * Hash de 64 bits de un par de textos (p. ej. número de empleado + periodo). Con 64 bits
+     * la probabilidad de colisión en un archivo de n filas es del orden de n² / 2^65.
+     */
+    public static long hashPar(CharSequence a, CharSequence b) {
+        long hash = fnv(FNV_INICIO, a);
+        hash = (hash ^ SEPARADOR) * FNV_PRIMO;
+        return mezclar(fnv(hash, b));
+    }
+
+    /**
+     * Mismo hash que {@link #hashPar(CharSequence, CharSequence)} para textos ASCII,
+     * calculado directamente sobre los bytes UTF-8 de cada campo.
+     */
+    public static long hashPar(byte[] a, int desdeA, int longitudA, byte[] b, int desdeB, int longitudB) {
+        long hash = fnv(FNV_INICIO, a, desdeA, longitudA);
+        hash = (hash ^ SEPARADOR) * FNV_PRIMO;
+        return mezclar(fnv(hash, b, desdeB, longitudB));
+    }
+
+    private static long fnv(long hash, CharSequence texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            hash = (hash ^ texto.charAt(i)) * FNV_PRIMO;
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, byte[] bytes, int desde, int longitud) {
+        for (int i = desde; i < desde + longitud; i++) {
+            hash = (hash ^ (bytes[i] & 0xFF)) * FNV_PRIMO;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizador de MurmurHash3 (fmix64): reparte los bits para el sondeo lineal.
+     */
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private void rehash() {
+        long[] anteriores = slots;
+        slots = new long[anteriores.length * 2];
+        int mascara = slots.length - 1;
+        for (long valor : anteriores) {
+            if (valor == 0) continue;
+            int slot = (int) mezclar(valor) & mascara;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mascara;
+            }
+            slots[slot] = valor;
+        }
+    }
+
+    private static int capacidadPara(int elementos) {
+        int capacidad = 16;
+        while (capacidad < elementos * 2) {
+            capacidad <<= 1;
+        }
+        return capacidad;
+    }
+}
@@ -0,0 +1,52 @@
+package com.tech.apicargamasiva.util;
+
+import com.tech.apicargamasiva.dto.ChunkMessage;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Conversor AMQP que manda los {@link ChunkMessage} en el formato de {@link CodecChunkMessage}
+ * y delega todo lo demás en el conversor JSON.
+ *
+ * Al leer decide por content type, así que un nodo nuevo entiende tanto chunks binarios como
+ * los JSON que publique un nodo anterior. Para un despliegue gradual se arranca con
+ * {@code escribirBinario=false} y se activa cuando todos los consumers ya son nuevos.
+ */
+public class ConversorMensajesBinario implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-chunk-message";
+
+    private final MessageConverter json;
+    private final boolean escribirBinario;
+
+    public ConversorMensajesBinario(MessageConverter json, boolean escribirBinario) {
+        this.json = json;
+        this.escribirBinario = escribirBinario;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        if (escribirBinario && object instanceof ChunkMessage chunk) {
+            messageProperties.setContentType(CONTENT_TYPE);
+            messageProperties.setHeader("x-chunk-version", CodecChunkMessage.VERSION);
+            byte[] cuerpo = CodecChunkMessage.codificar(chunk);
+            messageProperties.setContentLength(cuerpo.length);
+            return new Message(cuerpo, messageProperties);
+        }
+        return json.toMessage(object, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        if (CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+            try {
+                return CodecChunkMessage.decodificar(message.getBody());
+            } catch (IllegalArgumentException e) {
+                throw new MessageConversionException(e.getMessage(), e);
+            }
+        }
+        return json.fromMessage(message);
+    }
+}
@@ -0,0 +1,172 @@
+package com.tech.apicargamasiva.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Codificador del formato binario de COPY de PostgreSQL (PGCOPY): cabecera, tuplas como
+ * [int16 cantidad de campos] y cada campo como [int32 longitud][bytes], y el trailer -1.
+ *
+ * Los montos se escriben directamente desde centavos como NUMERIC(…, 2) y las fechas desde
+ * epoch day, sin pasar por BigDecimal ni LocalDate. Los bytes se acumulan en un buffer
+ * reutilizable que el llamador vacía con {@link #getBytes()} / {@link #limpiar()}.
+ */
+public class CopyBinario {
+
+    private static final byte[] FIRMA = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    // Días entre 1970-01-01 y 2000-01-01, la época de los DATE de PostgreSQL
+    private static final int EPOCH_POSTGRES = 10_957;
+
+    private static final int NUMERIC_POSITIVO = 0x0000;
+    private static final int NUMERIC_NEGATIVO = 0x4000;
+    private static final int NUMERIC_ESCALA = 2;
+
+    private byte[] buffer;
+    private int posicion;
+    private final short[] digitos = new short[8];
+
+    public CopyBinario() {
+        this(1 << 16);
+    }
+
+    public CopyBinario(int capacidad) {
+        buffer = new byte[capacidad];
+    }
+
+    public CopyBinario cabecera() {
+        asegurar(FIRMA.length + 8);
+        System.arraycopy(FIRMA, 0, buffer, posicion, FIRMA.length);
+        posicion += FIRMA.length;
+        putInt(0); // flags
+        putInt(0); // longitud de la extensión de cabecera
+        return this;
+    }
+
+    public CopyBinario fila(int campos) {
+        asegurar(Short.BYTES);
+        putShort(campos);
+        return this;
+    }
+
+    public CopyBinario fin() {
+        asegurar(Short.BYTES);
+        putShort(-1);
+        return this;
+    }
+
+    public CopyBinario nulo() {
+        asegurar(Integer.BYTES);
+        putInt(-1);
+        return this;
+    }
+
+    public CopyBinario texto(String valor) {
+        if (valor == null) return nulo();
+
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        asegurar(Integer.BYTES + bytes.length);
+        putInt(bytes.length);
+        System.arraycopy(bytes, 0, buffer, posicion, bytes.length);
+        posicion += bytes.length;
+        return this;
+    }
+
+    public CopyBinario entero(int valor) {
+        asegurar(2 * Integer.BYTES);
+        putInt(Integer.BYTES);
+        putInt(valor);
+        return this;
+    }
+
+    public CopyBinario bigint(long valor) {
+        asegurar(Integer.BYTES + Long.BYTES);
+        putInt(Long.BYTES);
+        putInt((int) (valor >>> 32));
+        putInt((int) valor);
+        return this;
+    }
+
+    public CopyBinario fecha(int epochDay) {
+        return entero(epochDay - EPOCH_POSTGRES);
+    }
+
+    /**
+     * NUMERIC con escala 2 a partir de centavos. El formato de PostgreSQL guarda dígitos en
+     * base 10000: la parte entera agrupada de a 4 dígitos y los centavos como primer dígito
+     * fraccionario (0,05 -> 0500).
+     */
+    public CopyBinario numeric(long centavos) {
+        if (centavos == Centavos.INVALIDO) return nulo();
+
+        int signo = centavos < 0 ? NUMERIC_NEGATIVO : NUMERIC_POSITIVO;
+        long absoluto = Math.abs(centavos);
+        long entero = absoluto / 100;
+        int fraccion = (int) (absoluto % 100) * 100;
+
+        int enteros = 0;
+        for (long resto = entero; resto > 0; resto /= 10_000) {
+            enteros++;
+        }
+        long resto = entero;
+        for (int i = enteros - 1; i >= 0; i--) {
+            digitos[i] = (short) (resto % 10_000);
+            resto /= 10_000;
+        }
+
+        // Sin ceros al final (PostgreSQL los descarta igual al normalizar)
+        int cantidad = enteros;
+        if (fraccion != 0) {
+            digitos[cantidad++] = (short) fraccion;
+        } else {
+            while (cantidad > 0 && digitos[cantidad - 1] == 0) cantidad--;
+        }
+        int peso = enteros - 1;
+        if (cantidad == 0) {
+            peso = 0;
+            signo = NUMERIC_POSITIVO;
+        }
+
+        int longitud = 4 * Short.BYTES + cantidad * Short.BYTES;
+        asegurar(Integer.BYTES + longitud);
+        putInt(longitud);
+        putShort(cantidad);
+        putShort(peso);
+        putShort(signo);
+        putShort(NUMERIC_ESCALA);
+        for (int i = 0; i < cantidad; i++) {
+            putShort(digitos[i]);
+        }
+        return this;
+    }
+
+    public byte[] getBytes() {
+        return buffer;
+    }
+
+    public int size() {
+        return posicion;
+    }
+
+    public void limpiar() {
+        posicion = 0;
+    }
+
+    private void asegurar(int bytes) {
+        if (posicion + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, posicion + bytes));
+        }
+    }
+
+    private void putShort(int valor) {
+        buffer[posicion++] = (byte) (valor >>> 8);
+        buffer[posicion++] = (byte) valor;
+    }
+
+    private void putInt(int valor) {
+        buffer[posicion++] = (byte) (valor >>> 24);
+        buffer[posicion++] = (byte) (valor >>> 16);
+        buffer[posicion++] = (byte) (valor >>> 8);
+        buffer[posicion++] = (byte) valor;
+    }
+}
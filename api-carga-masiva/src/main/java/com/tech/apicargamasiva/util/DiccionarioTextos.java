@@ -0,0 +1,262 @@
+package com.tech.apicargamasiva.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Diccionario por job para columnas de baja cardinalidad (puesto, periodo de pago).
+ *
+ * Entrega una única instancia canónica por valor distinto y un código int estable para
+ * ella, de modo que las filas que repiten el valor no asignan un String nuevo. Admite tres
+ * entradas: el índice de la tabla de shared strings del Excel (se resuelve y recorta una
+ * sola vez por índice), los bytes UTF-8 de un campo CSV (se buscan sin crear el String) y
+ * un String ya construido.
+ *
+ * Si la columna resulta no ser de baja cardinalidad, al llegar a {@link #LIMITE} valores el
+ * diccionario deja de crecer: los valores nuevos se devuelven tal cual y sin código.
+ *
+ * Se arma en un solo hilo, durante la pasada única sobre el archivo, y se guarda junto a él
+ * (archivo .dic). Lo que cargan los consumers con {@link #leer} es de solo lectura: los
+ * valores que no estaban se devuelven tal cual y sin código, así varios hilos del mismo job
+ * lo comparten sin sincronizar.
+ */
+public class DiccionarioTextos {
+
+    public static final int LIMITE = 1 << 16;
+    public static final int SIN_CODIGO = -1;
+
+    // Índices de shared strings por encima de este valor no se cachean por posición
+    private static final int MAX_INDICE_COMPARTIDO = 1 << 22;
+
+    // Los valores se guardan con longitud u16
+    private static final int TEXTO_MAX_BYTES = 0xFFFE;
+
+    private final List<String> valores = new ArrayList<>();
+    private final Map<String, Integer> codigos = new HashMap<>();
+
+    private int[] codigoPorIndiceCompartido = new int[0];
+
+    // Tabla hash abierta bytes UTF-8 -> código (slot = código + 1, 0 = libre)
+    private int[] slotsBytes = new int[256];
+    private byte[][] bytesPorCodigo = new byte[64][];
+    private int ocupadosBytes;
+
+    private boolean soloLectura;
+
+    public DiccionarioTextos() {
+    }
+
+    /**
+     * Reconstruye un diccionario a partir de sus valores en orden de código. El resultado
+     * es de solo lectura.
+     */
+    public DiccionarioTextos(String[] valores) {
+        for (String valor : valores) {
+            int codigo = registrar(valor);
+            if (codigo != SIN_CODIGO) {
+                indexarBytes(codigo, valor.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        soloLectura = true;
+    }
+
+    public static Path ruta(Path archivo) {
+        return archivo.resolveSibling(archivo.getFileName() + ".dic");
+    }
+
+    /**
+     * Carga un diccionario guardado con {@link #escribir}. Si el archivo no existe devuelve
+     * uno vacío: los valores se leen igual, solo que sin canonicalizar.
+     */
+    public static DiccionarioTextos leer(Path ruta) throws IOException {
+        if (!Files.exists(ruta)) {
+            return new DiccionarioTextos(new String[0]);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(ruta));
+        String[] valores = new String[buffer.getInt()];
+        byte[] scratch = new byte[TEXTO_MAX_BYTES];
+        for (int i = 0; i < valores.length; i++) {
+            int longitud = Short.toUnsignedInt(buffer.getShort());
+            buffer.get(scratch, 0, longitud);
+            valores[i] = new String(scratch, 0, longitud, StandardCharsets.UTF_8);
+        }
+        return new DiccionarioTextos(valores);
+    }
+
+    /**
+     * Guarda los valores: [int cantidad] y luego cada uno con longitud u16, en orden de código.
+     */
+    public void escribir(Path ruta) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(ruta), 1 << 16))) {
+            out.writeInt(valores.size());
+            for (String valor : valores) {
+                byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+                int longitud = Math.min(bytes.length, TEXTO_MAX_BYTES);
+                out.writeShort(longitud);
+                out.write(bytes, 0, longitud);
+            }
+        }
+    }
+
+    public String canonico(String valor) {
+        if (valor == null) return null;
+
+        Integer codigo = codigos.get(valor);
+        if (codigo != null) {
+            return valores.get(codigo);
+        }
+        registrar(valor);
+        return valor;
+    }
+
+    /**
+     * Valor (recortado) del índice de shared strings, resolviéndolo solo la primera vez.
+     */
+    public String compartido(int indice, IntFunction<String> sharedStrings) {
+        if (soloLectura || indice < 0 || indice >= MAX_INDICE_COMPARTIDO) {
+            return canonico(sharedStrings.apply(indice).trim());
+        }
+
+        if (indice >= codigoPorIndiceCompartido.length) {
+            int anterior = codigoPorIndiceCompartido.length;
+            codigoPorIndiceCompartido = Arrays.copyOf(codigoPorIndiceCompartido,
+                    Math.min(MAX_INDICE_COMPARTIDO, Math.max(indice + 1, anterior * 2)));
+            Arrays.fill(codigoPorIndiceCompartido, anterior, codigoPorIndiceCompartido.length, SIN_CODIGO);
+        }
+
+        int codigo = codigoPorIndiceCompartido[indice];
+        if (codigo != SIN_CODIGO) {
+            return valores.get(codigo);
+        }
+
+        String valor = canonico(sharedStrings.apply(indice).trim());
+        codigoPorIndiceCompartido[indice] = codigo(valor);
+        return valor;
+    }
+
+    /**
+     * Valor canónico de los bytes UTF-8 [desde, desde + longitud), ignorando espacios externos.
+     * Solo se crea un String la primera vez que aparece el valor.
+     */
+    public String canonico(byte[] bytes, int desde, int longitud) {
+        int inicio = desde;
+        int fin = desde + longitud;
+        while (inicio < fin && (bytes[inicio] & 0xFF) <= ' ') inicio++;
+        while (fin > inicio && (bytes[fin - 1] & 0xFF) <= ' ') fin--;
+
+        int hash = 1;
+        for (int i = inicio; i < fin; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        int mascara = slotsBytes.length - 1;
+        int slot = mezclar(hash) & mascara;
+        while (slotsBytes[slot] != 0) {
+            int codigo = slotsBytes[slot] - 1;
+            byte[] candidato = bytesPorCodigo[codigo];
+            if (Arrays.equals(candidato, 0, candidato.length, bytes, inicio, fin)) {
+                return valores.get(codigo);
+            }
+            slot = (slot + 1) & mascara;
+        }
+
+        String valor = canonico(new String(bytes, inicio, fin - inicio, StandardCharsets.UTF_8));
+        int codigo = codigo(valor);
+        if (codigo != SIN_CODIGO && !soloLectura) {
+            guardarBytes(codigo, Arrays.copyOfRange(bytes, inicio, fin), slot);
+        }
+        return valor;
+    }
+
+    /**
+     * Código del valor o {@link #SIN_CODIGO} si no está en el diccionario.
+     */
+    public int codigo(String valor) {
+        Integer codigo = valor != null ? codigos.get(valor) : null;
+        return codigo != null ? codigo : SIN_CODIGO;
+    }
+
+    public String valor(int codigo) {
+        return valores.get(codigo);
+    }
+
+    public int size() {
+        return valores.size();
+    }
+
+    /**
+     * Copia de los valores en orden de código.
+     */
+    public String[] valores() {
+        return valores.toArray(new String[0]);
+    }
+
+    private int registrar(String valor) {
+        if (soloLectura || valores.size() >= LIMITE) {
+            return SIN_CODIGO;
+        }
+        int codigo = valores.size();
+        valores.add(valor);
+        codigos.put(valor, codigo);
+        return codigo;
+    }
+
+    private void indexarBytes(int codigo, byte[] valor) {
+        int hash = 1;
+        for (byte b : valor) {
+            hash = 31 * hash + b;
+        }
+        int mascara = slotsBytes.length - 1;
+        int slot = mezclar(hash) & mascara;
+        while (slotsBytes[slot] != 0) {
+            slot = (slot + 1) & mascara;
+        }
+        guardarBytes(codigo, valor, slot);
+    }
+
+    private void guardarBytes(int codigo, byte[] valor, int slot) {
+        if (codigo >= bytesPorCodigo.length) {
+            bytesPorCodigo = Arrays.copyOf(bytesPorCodigo, Math.max(codigo + 1, bytesPorCodigo.length * 2));
+        }
+        bytesPorCodigo[codigo] = valor;
+        slotsBytes[slot] = codigo + 1;
+        if (++ocupadosBytes * 2 > slotsBytes.length) {
+            rehashBytes();
+        }
+    }
+
+    private void rehashBytes() {
+        int[] nuevos = new int[slotsBytes.length * 2];
+        int mascara = nuevos.length - 1;
+        for (int entrada : slotsBytes) {
+            if (entrada == 0) continue;
+            byte[] bytes = bytesPorCodigo[entrada - 1];
+            int hash = 1;
+            for (byte b : bytes) {
+                hash = 31 * hash + b;
+            }
+            int slot = mezclar(hash) & mascara;
+            while (nuevos[slot] != 0) {
+                slot = (slot + 1) & mascara;
+            }
+            nuevos[slot] = entrada;
+        }
+        slotsBytes = nuevos;
+    }
+
+    private static int mezclar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,91 @@
+package com.tech.apicargamasiva.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Filas de un archivo cuya clave (número de empleado + periodo) ya apareció en una fila
+ * anterior. Se detectan en la pasada única sobre el archivo (spill o índice CSV) y se guardan
+ * junto a él como una lista ordenada de enteros big-endian, para que cada chunk pueda
+ * consultarlas sin volver a recorrer el archivo.
+ */
+public final class FilasDuplicadas {
+
+    private static final int[] NINGUNA = new int[0];
+
+    private FilasDuplicadas() {
+    }
+
+    public static Path ruta(Path archivo) {
+        return archivo.resolveSibling(archivo.getFileName() + ".dup");
+    }
+
+    /**
+     * Filas marcadas, en orden ascendente. Si el archivo no existe no hay duplicados.
+     */
+    public static int[] leer(Path ruta) throws IOException {
+        if (!Files.exists(ruta)) {
+            return NINGUNA;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(ruta));
+        int[] filas = new int[buffer.remaining() / Integer.BYTES];
+        buffer.asIntBuffer().get(filas);
+        return filas;
+    }
+
+    public static boolean contiene(int[] filas, int fila) {
+        return filas.length > 0 && Arrays.binarySearch(filas, fila) >= 0;
+    }
+
+    /**
+     * Recorre las claves en el orden del archivo: la primera aparición se conserva y las
+     * siguientes quedan marcadas. Quien recorre el archivo registra solo las filas que pasan
+     * el resto de las validaciones, así una fila rechazada no se lleva la clave.
+     */
+    public static final class Detector {
+
+        private final ConjuntoLong claves;
+        private int[] filas = new int[64];
+        private int cantidad;
+
+        public Detector(int filasEsperadas) {
+            this.claves = new ConjuntoLong(filasEsperadas);
+        }
+
+        /**
+         * Registra la clave de la fila. Devuelve true si es un duplicado.
+         */
+        public boolean registrar(int fila, long hashClave) {
+            if (claves.agregar(hashClave)) {
+                return false;
+            }
+            if (cantidad == filas.length) {
+                filas = Arrays.copyOf(filas, cantidad * 2);
+            }
+            filas[cantidad++] = fila;
+            return true;
+        }
+
+        public int getCantidad() {
+            return cantidad;
+        }
+
+        /**
+         * Escribe las filas marcadas; si no hay ninguna no se crea el archivo.
+         */
+        public void escribir(Path ruta) throws IOException {
+            Files.deleteIfExists(ruta);
+            if (cantidad == 0) {
+                return;
+            }
+            int[] ordenadas = Arrays.copyOf(filas, cantidad);
+            Arrays.sort(ordenadas);
+            ByteBuffer buffer = ByteBuffer.allocate(cantidad * Integer.BYTES);
+            buffer.asIntBuffer().put(ordenadas);
+            Files.write(ruta, buffer.array());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.tech.apicargamasiva.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Índice de filas de un archivo de datos: por cada fila (ordinal base 0) guarda el offset
+ * en bytes donde comienza, seguido de un offset final que marca el fin de los datos.
+ * Permite saltar directamente a cualquier rango de filas sin recorrer el archivo.
+ */
+public final class IndiceFilas {
+
+    private IndiceFilas() {
+    }
+
+    public static Escritor escritor(Path ruta) throws IOException {
+        return new Escritor(ruta);
+    }
+
+    /**
+     * Cantidad de filas indexadas.
+     */
+    public static int contarFilas(Path ruta) throws IOException {
+        return (int) Math.max(0, Files.size(ruta) / Long.BYTES - 1);
+    }
+
+    /**
+     * Rango de bytes que ocupan las filas [desde, hasta] (ordinales base 0, inclusivos).
+     * Si el rango excede el total de filas se recorta al final del archivo.
+     */
+    public static Rango rango(Path ruta, int desde, int hasta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            int filas = (int) Math.max(0, canal.size() / Long.BYTES - 1);
+            if (desde < 0 || desde >= filas || hasta < desde) {
+                return new Rango(0, 0, 0);
+            }
+
+            int ultima = Math.min(hasta, filas - 1);
+            long inicio = leerOffset(canal, desde);
+            long fin = leerOffset(canal, ultima + 1);
+            return new Rango(inicio, fin, ultima - desde + 1);
+        }
+    }
+
+    private static long leerOffset(FileChannel canal, int ordinal) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        long posicion = (long) ordinal * Long.BYTES;
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                throw new IOException("Índice de filas truncado en la entrada " + ordinal);
+            }
+        }
+        return buffer.flip().getLong();
+    }
+
+    public record Rango(long inicio, long fin, int filas) {
+
+        public long longitud() {
+            return fin - inicio;
+        }
+    }
+
+    /**
+     * Escritor secuencial del índice. Se debe llamar a {@link #cerrar(long)} con el offset
+     * final para que el índice quede completo.
+     */
+    public static final class Escritor implements Closeable {
+
+        private final DataOutputStream out;
+        private int filas;
+
+        private Escritor(Path ruta) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(ruta), 1 << 16));
+        }
+
+        public void agregar(long offset) throws IOException {
+            out.writeLong(offset);
+            filas++;
+        }
+
+        public void cerrar(long fin) throws IOException {
+            out.writeLong(fin);
+            out.close();
+        }
+
+        public int getFilas() {
+            return filas;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
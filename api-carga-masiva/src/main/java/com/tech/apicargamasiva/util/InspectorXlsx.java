@@ -0,0 +1,269 @@
+package com.tech.apicargamasiva.util;
+
+import org.apache.poi.util.XMLHelper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Inspección liviana de un .xlsx leyendo directamente las partes OOXML del zip con StAX:
+ * obtiene la última fila desde el elemento {@code <dimension>} de la primera hoja y los
+ * valores de la primera fila, sin materializar el workbook ni la tabla de shared strings.
+ * Solo si la hoja no declara dimensión se recurre a contar las filas en streaming.
+ */
+public final class InspectorXlsx {
+
+    private static final String NS_RELACIONES =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String HOJA_POR_DEFECTO = "xl/worksheets/sheet1.xml";
+    private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+
+    private static final XMLInputFactory FACTORY = XMLHelper.newXMLInputFactory();
+
+    private InspectorXlsx() {
+    }
+
+    /**
+     * @param columnas cantidad de columnas de la primera fila a devolver
+     */
+    public static Resumen inspeccionar(Path xlsx, int columnas) throws IOException {
+        try (ZipFile zip = new ZipFile(xlsx.toFile())) {
+            ZipEntry hoja = zip.getEntry(localizarPrimeraHoja(zip));
+            if (hoja == null) {
+                throw new IOException("El archivo no contiene hojas");
+            }
+
+            String[] encabezados = new String[columnas];
+            boolean[] compartidos = new boolean[columnas];
+            int ultimaFila;
+
+            try (InputStream in = zip.getInputStream(hoja)) {
+                ultimaFila = leerHoja(in, encabezados, compartidos);
+            }
+
+            resolverSharedStrings(zip, encabezados, compartidos);
+            return new Resumen(ultimaFila, encabezados);
+        } catch (XMLStreamException e) {
+            throw new IOException("Error inspeccionando Excel: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recorre la hoja hasta tener la dimensión y la primera fila. Devuelve el índice (base 0)
+     * de la última fila, o -1 si la hoja está vacía.
+     */
+    private static int leerHoja(InputStream in, String[] valores, boolean[] compartidos)
+            throws XMLStreamException {
+        XMLStreamReader xml = FACTORY.createXMLStreamReader(in);
+        try {
+            int ultimaFila = -1;
+            boolean primeraFilaLeida = false;
+            int filasContadas = 0;
+            int columna = -1;
+            String tipo = null;
+            StringBuilder texto = null;
+
+            while (xml.hasNext()) {
+                int evento = xml.next();
+
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    String nombre = xml.getLocalName();
+
+                    if ("dimension".equals(nombre)) {
+                        ultimaFila = ultimaFilaDeDimension(xml.getAttributeValue(null, "ref"));
+                    } else if ("row".equals(nombre)) {
+                        if (primeraFilaLeida && ultimaFila >= 0) {
+                            return ultimaFila;
+                        }
+                        String r = xml.getAttributeValue(null, "r");
+                        filasContadas = r != null ? Integer.parseInt(r) : filasContadas + 1;
+                    } else if (!primeraFilaLeida && "c".equals(nombre)) {
+                        String referencia = xml.getAttributeValue(null, "r");
+                        columna = referencia != null ? indiceColumna(referencia) : columna + 1;
+                        tipo = xml.getAttributeValue(null, "t");
+                    } else if (!primeraFilaLeida && ("v".equals(nombre) || "t".equals(nombre))) {
+                        texto = new StringBuilder();
+                    }
+                } else if (evento == XMLStreamConstants.CHARACTERS && texto != null) {
+                    texto.append(xml.getText());
+                } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                    String nombre = xml.getLocalName();
+
+                    if (texto != null && ("v".equals(nombre) || "t".equals(nombre))) {
+                        if (columna >= 0 && columna < valores.length) {
+                            valores[columna] = valores[columna] == null
+                                    ? texto.toString()
+                                    : valores[columna] + texto;
+                            compartidos[columna] = "s".equals(tipo);
+                        }
+                        texto = null;
+                    } else if (!primeraFilaLeida && "row".equals(nombre)) {
+                        primeraFilaLeida = true;
+                        columna = -1;
+                    } else if ("sheetData".equals(nombre)) {
+                        break;
+                    }
+                }
+            }
+
+            // Sin <dimension>: la última fila es la última contada en streaming
+            return ultimaFila >= 0 ? ultimaFila : filasContadas - 1;
+        } finally {
+            xml.close();
+        }
+    }
+
+    /**
+     * "A1:I5001" -> 5000. Devuelve -1 si la referencia no permite conocer la última fila.
+     */
+    private static int ultimaFilaDeDimension(String ref) {
+        if (ref == null) return -1;
+
+        int separador = ref.indexOf(':');
+        if (separador < 0) return -1;
+
+        int fila = 0;
+        for (int i = separador + 1; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c >= '0' && c <= '9') {
+                fila = fila * 10 + (c - '0');
+            }
+        }
+        return fila - 1;
+    }
+
+    /**
+     * Reemplaza los índices de shared strings de la primera fila por su texto, leyendo
+     * sharedStrings.xml solo hasta el mayor índice necesario.
+     */
+    private static void resolverSharedStrings(ZipFile zip, String[] valores, boolean[] compartidos)
+            throws IOException, XMLStreamException {
+        int maximo = -1;
+        int[] indices = new int[valores.length];
+        Arrays.fill(indices, -1);
+
+        for (int i = 0; i < valores.length; i++) {
+            if (compartidos[i] && valores[i] != null) {
+                indices[i] = Integer.parseInt(valores[i].trim());
+                maximo = Math.max(maximo, indices[i]);
+            }
+        }
+        if (maximo < 0) return;
+
+        ZipEntry entrada = zip.getEntry(SHARED_STRINGS);
+        if (entrada == null) {
+            throw new IOException("El archivo no contiene sharedStrings.xml");
+        }
+
+        String[] cadenas = new String[maximo + 1];
+        try (InputStream in = zip.getInputStream(entrada)) {
+            XMLStreamReader xml = FACTORY.createXMLStreamReader(in);
+            try {
+                int indice = -1;
+                int profundidadFonetica = 0;
+                StringBuilder actual = null;
+                boolean enTexto = false;
+
+                while (xml.hasNext() && indice <= maximo) {
+                    int evento = xml.next();
+                    if (evento == XMLStreamConstants.START_ELEMENT) {
+                        String nombre = xml.getLocalName();
+                        if ("si".equals(nombre)) {
+                            indice++;
+                            actual = new StringBuilder();
+                        } else if ("rPh".equals(nombre)) {
+                            profundidadFonetica++;
+                        } else if ("t".equals(nombre) && profundidadFonetica == 0) {
+                            enTexto = true;
+                        }
+                    } else if (evento == XMLStreamConstants.CHARACTERS && enTexto && actual != null) {
+                        actual.append(xml.getText());
+                    } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                        String nombre = xml.getLocalName();
+                        if ("t".equals(nombre)) {
+                            enTexto = false;
+                        } else if ("rPh".equals(nombre)) {
+                            profundidadFonetica--;
+                        } else if ("si".equals(nombre) && indice <= maximo) {
+                            cadenas[indice] = actual.toString();
+                        }
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        }
+
+        for (int i = 0; i < valores.length; i++) {
+            if (indices[i] >= 0) {
+                valores[i] = cadenas[indices[i]];
+            }
+        }
+    }
+
+    /**
+     * Ruta dentro del zip de la primera hoja según workbook.xml y sus relaciones.
+     */
+    private static String localizarPrimeraHoja(ZipFile zip) throws IOException, XMLStreamException {
+        String relacionId = primerAtributo(zip, "xl/workbook.xml", "sheet", NS_RELACIONES, "id", null);
+        if (relacionId == null) {
+            return HOJA_POR_DEFECTO;
+        }
+
+        String destino = primerAtributo(zip, "xl/_rels/workbook.xml.rels", "Relationship", null, "Target", relacionId);
+        if (destino == null) {
+            return HOJA_POR_DEFECTO;
+        }
+        return destino.startsWith("/") ? destino.substring(1) : "xl/" + destino;
+    }
+
+    /**
+     * Devuelve el atributo del primer elemento con ese nombre (y, si se indica, con ese Id).
+     */
+    private static String primerAtributo(ZipFile zip, String parte, String elemento, String namespace,
+                                         String atributo, String id) throws IOException, XMLStreamException {
+        ZipEntry entrada = zip.getEntry(parte);
+        if (entrada == null) return null;
+
+        try (InputStream in = zip.getInputStream(entrada)) {
+            XMLStreamReader xml = FACTORY.createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT
+                        && elemento.equals(xml.getLocalName())
+                        && (id == null || id.equals(xml.getAttributeValue(null, "Id")))) {
+                        return xml.getAttributeValue(namespace, atributo);
+                    }
+                }
+                return null;
+            } finally {
+                xml.close();
+            }
+        }
+    }
+
+    private static int indiceColumna(String referencia) {
+        int columna = 0;
+        for (int i = 0; i < referencia.length(); i++) {
+            char c = referencia.charAt(i);
+            if (c < 'A' || c > 'Z') break;
+            columna = columna * 26 + (c - 'A' + 1);
+        }
+        return columna - 1;
+    }
+
+    /**
+     * @param ultimaFila índice base 0 de la última fila (equivalente a Sheet.getLastRowNum())
+     * @param primeraFila valores crudos de la primera fila (null si la celda no existe)
+     */
+    public record Resumen(int ultimaFila, String[] primeraFila) {
+    }
+}
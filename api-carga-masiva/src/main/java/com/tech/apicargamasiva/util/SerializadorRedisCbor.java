@@ -0,0 +1,93 @@
+package com.tech.apicargamasiva.util;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+
+/**
+ * Serializer de valores de Redis en CBOR (JSON binario), con el tipo de la clase embebido
+ * para que {@code get("job:...")} devuelva la entidad y no un mapa.
+ *
+ * Cada valor lleva una cabecera de 3 bytes (0xCB, 'J', versión). Al leer, lo que no tenga la
+ * cabecera se interpreta como el JSON que escribía la versión anterior, así los valores ya
+ * guardados siguen siendo legibles durante un despliegue gradual.
+ */
+public class SerializadorRedisCbor implements RedisSerializer<Object> {
+
+    private static final byte VERSION = 1;
+    private static final byte[] CABECERA = {(byte) 0xCB, 'J', VERSION};
+
+    private final ObjectMapper cbor;
+    private final RedisSerializer<Object> json;
+    private final boolean escribirCbor;
+
+    public SerializadorRedisCbor(ObjectMapper jsonMapper, boolean escribirCbor) {
+        this.json = new GenericJackson2JsonRedisSerializer(jsonMapper);
+        this.escribirCbor = escribirCbor;
+
+        // Solo se aceptan como tipo embebido clases propias y del JDK
+        BasicPolymorphicTypeValidator tipos = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.tech.apicargamasiva.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.time.")
+                .allowIfSubType("java.lang.")
+                .build();
+
+        this.cbor = CBORMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .activateDefaultTyping(tipos, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY)
+                .build();
+    }
+
+    @Override
+    public byte[] serialize(Object valor) throws SerializationException {
+        if (valor == null) {
+            return new byte[0];
+        }
+        if (!escribirCbor) {
+            return json.serialize(valor);
+        }
+        try {
+            byte[] cuerpo = cbor.writeValueAsBytes(valor);
+            byte[] bytes = new byte[CABECERA.length + cuerpo.length];
+            System.arraycopy(CABECERA, 0, bytes, 0, CABECERA.length);
+            System.arraycopy(cuerpo, 0, bytes, CABECERA.length, cuerpo.length);
+            return bytes;
+        } catch (IOException e) {
+            throw new SerializationException("No se pudo serializar a CBOR: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (!tieneCabecera(bytes)) {
+            return json.deserialize(bytes);
+        }
+        if (bytes[2] != VERSION) {
+            throw new SerializationException("Versión de valor CBOR no soportada: " + bytes[2]);
+        }
+        try {
+            return cbor.readValue(bytes, CABECERA.length, bytes.length - CABECERA.length, Object.class);
+        } catch (IOException e) {
+            throw new SerializationException("No se pudo leer el valor CBOR: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean tieneCabecera(byte[] bytes) {
+        return bytes.length >= CABECERA.length && bytes[0] == CABECERA[0] && bytes[1] == CABECERA[1];
+    }
+}
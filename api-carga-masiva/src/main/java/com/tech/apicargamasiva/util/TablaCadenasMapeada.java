@@ -0,0 +1,240 @@
+package com.tech.apicargamasiva.util;
+
+import org.apache.poi.util.XMLHelper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tabla de shared strings (sharedStrings.xml) fuera del heap.
+ *
+ * El XML se recorre una sola vez con StAX y cada cadena se vuelca en UTF-8 a un archivo
+ * temporal, junto con un índice de offsets ({@link IndiceFilas}). Ambos archivos se mapean
+ * en memoria y las cadenas se decodifican bajo demanda; solo un LRU acotado en bytes queda
+ * en el heap. Pensada para libros con millones de cadenas únicas, donde la tabla de POI
+ * ocupa más heap que el chunk que se está leyendo.
+ *
+ * No es segura para uso concurrente: se crea por recorrido de la hoja.
+ */
+public class TablaCadenasMapeada implements Closeable {
+
+    private static final XMLInputFactory FACTORY = XMLHelper.newXMLInputFactory();
+
+    // Los segmentos de datos se mapean de a 1 GB (un MappedByteBuffer no supera 2 GB)
+    private static final int BITS_SEGMENTO = 30;
+    private static final long MASCARA_SEGMENTO = (1L << BITS_SEGMENTO) - 1;
+
+    // Estimación del costo en heap de una entrada del LRU además de los chars del String
+    private static final int SOBRECARGA_ENTRADA = 64;
+
+    private final Path datosPath;
+    private final Path indicePath;
+    private final MappedByteBuffer[] segmentos;
+    private final MappedByteBuffer indice;
+    private final int cantidad;
+    private final Cache cache;
+    private byte[] scratch = new byte[256];
+
+    private TablaCadenasMapeada(Path datosPath, Path indicePath, int cantidad, long cacheBytes) throws IOException {
+        this.datosPath = datosPath;
+        this.indicePath = indicePath;
+        this.cantidad = cantidad;
+        this.cache = new Cache(cacheBytes);
+
+        try (FileChannel datos = FileChannel.open(datosPath, StandardOpenOption.READ);
+             FileChannel offsets = FileChannel.open(indicePath, StandardOpenOption.READ)) {
+            long tamano = datos.size();
+            int cantidadSegmentos = (int) ((tamano + MASCARA_SEGMENTO) >>> BITS_SEGMENTO);
+            segmentos = new MappedByteBuffer[cantidadSegmentos];
+            for (int i = 0; i < cantidadSegmentos; i++) {
+                long inicio = (long) i << BITS_SEGMENTO;
+                segmentos[i] = datos.map(FileChannel.MapMode.READ_ONLY, inicio,
+                        Math.min(1L << BITS_SEGMENTO, tamano - inicio));
+            }
+
+            if (offsets.size() > Integer.MAX_VALUE) {
+                throw new IOException("Tabla de shared strings demasiado grande: " + cantidad + " cadenas");
+            }
+            indice = offsets.map(FileChannel.MapMode.READ_ONLY, 0, offsets.size());
+        }
+    }
+
+    /**
+     * Vuelca sharedStrings.xml al directorio indicado y devuelve la tabla lista para consultar.
+     *
+     * @param cacheBytes tamaño aproximado en bytes del LRU de cadenas ya decodificadas
+     */
+    public static TablaCadenasMapeada crear(InputStream sharedStrings, Path directorio, long cacheBytes)
+            throws IOException {
+        Files.createDirectories(directorio);
+        Path datosPath = Files.createTempFile(directorio, "sst-", ".dat");
+        Path indicePath = datosPath.resolveSibling(datosPath.getFileName() + ".idx");
+
+        try {
+            int cantidad = volcar(sharedStrings, datosPath, indicePath);
+            return new TablaCadenasMapeada(datosPath, indicePath, cantidad, cacheBytes);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(datosPath);
+            Files.deleteIfExists(indicePath);
+            throw e;
+        }
+    }
+
+    public int size() {
+        return cantidad;
+    }
+
+    /**
+     * Cadena del índice (base 0) de la tabla, igual que ReadOnlySharedStringsTable.getItemAt.
+     */
+    public String get(int indiceCadena) {
+        if (indiceCadena < 0 || indiceCadena >= cantidad) {
+            throw new IndexOutOfBoundsException("Shared string inexistente: " + indiceCadena);
+        }
+
+        String valor = cache.get(indiceCadena);
+        if (valor == null) {
+            valor = leer(indiceCadena);
+            cache.agregar(indiceCadena, valor);
+        }
+        return valor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.clear();
+        // Los mapeos se liberan con el GC; en Linux el archivo se puede borrar igualmente
+        Files.deleteIfExists(datosPath);
+        Files.deleteIfExists(indicePath);
+    }
+
+    private String leer(int indiceCadena) {
+        long inicio = indice.getLong(indiceCadena * Long.BYTES);
+        int longitud = (int) (indice.getLong((indiceCadena + 1) * Long.BYTES) - inicio);
+        if (longitud > scratch.length) {
+            scratch = new byte[Math.max(longitud, scratch.length * 2)];
+        }
+
+        int copiados = 0;
+        while (copiados < longitud) {
+            long posicion = inicio + copiados;
+            MappedByteBuffer segmento = segmentos[(int) (posicion >>> BITS_SEGMENTO)];
+            int desde = (int) (posicion & MASCARA_SEGMENTO);
+            int n = Math.min(longitud - copiados, segmento.limit() - desde);
+            segmento.get(desde, scratch, copiados, n);
+            copiados += n;
+        }
+        return new String(scratch, 0, longitud, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cada {@code <si>} se concatena (texto plano o runs {@code <r><t>}) igual que la tabla
+     * de POI, y se escribe como un registro UTF-8 con su offset en el índice.
+     */
+    private static int volcar(InputStream in, Path datosPath, Path indicePath) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(datosPath), 1 << 16);
+             IndiceFilas.Escritor offsets = IndiceFilas.escritor(indicePath)) {
+
+            XMLStreamReader xml = FACTORY.createXMLStreamReader(in);
+            try {
+                StringBuilder texto = new StringBuilder(64);
+                boolean enItem = false;
+                boolean enTexto = false;
+                long offset = 0;
+
+                while (xml.hasNext()) {
+                    int evento = xml.next();
+
+                    if (evento == XMLStreamConstants.START_ELEMENT) {
+                        String nombre = xml.getLocalName();
+                        if ("si".equals(nombre)) {
+                            enItem = true;
+                            texto.setLength(0);
+                        } else if (enItem && "t".equals(nombre)) {
+                            enTexto = true;
+                        }
+                    } else if (enTexto && (evento == XMLStreamConstants.CHARACTERS
+                            || evento == XMLStreamConstants.CDATA
+                            || evento == XMLStreamConstants.SPACE)) {
+                        texto.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                    } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                        String nombre = xml.getLocalName();
+                        if ("t".equals(nombre)) {
+                            enTexto = false;
+                        } else if ("si".equals(nombre)) {
+                            byte[] bytes = texto.toString().getBytes(StandardCharsets.UTF_8);
+                            offsets.agregar(offset);
+                            out.write(bytes);
+                            offset += bytes.length;
+                            enItem = false;
+                        }
+                    }
+                }
+
+                out.flush();
+                offsets.cerrar(offset);
+                return offsets.getFilas();
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Error leyendo sharedStrings.xml: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * LRU de cadenas decodificadas acotado por una estimación de bytes en heap.
+     */
+    private static class Cache extends LinkedHashMap<Integer, String> {
+
+        private final long maximoBytes;
+        private long bytes;
+
+        Cache(long maximoBytes) {
+            super(1024, 0.75f, true);
+            this.maximoBytes = maximoBytes;
+        }
+
+        void agregar(int indice, String valor) {
+            if (maximoBytes <= 0) return;
+
+            String anterior = put(indice, valor);
+            if (anterior != null) {
+                bytes -= costo(anterior);
+            }
+            bytes += costo(valor);
+
+            var entradas = entrySet().iterator();
+            while (bytes > maximoBytes && entradas.hasNext()) {
+                Map.Entry<Integer, String> masAntigua = entradas.next();
+                bytes -= costo(masAntigua.getValue());
+                entradas.remove();
+            }
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            bytes = 0;
+        }
+
+        private static long costo(String valor) {
+            return SOBRECARGA_ENTRADA + 2L * valor.length();
+        }
+    }
+}
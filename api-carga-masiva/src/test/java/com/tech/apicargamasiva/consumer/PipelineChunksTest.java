@@ -0,0 +1,109 @@
+package com.tech.apicargamasiva.consumer;
+
+import com.tech.apicargamasiva.dto.ChunkMessage;
+import com.tech.apicargamasiva.service.ValidacionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineChunksTest {
+
+	private PipelineChunks pipeline;
+
+	private PipelineChunks crear(int escritores, int buffers) {
+		pipeline = new PipelineChunks();
+		ReflectionTestUtils.setField(pipeline, "validacionService", new ValidacionService());
+		ReflectionTestUtils.setField(pipeline, "habilitado", true);
+		ReflectionTestUtils.setField(pipeline, "escritores", escritores);
+		ReflectionTestUtils.setField(pipeline, "cantidadBuffers", buffers);
+		pipeline.iniciar();
+		return pipeline;
+	}
+
+	@AfterEach
+	void detener() {
+		if (pipeline != null) {
+			pipeline.detener();
+		}
+	}
+
+	private static ChunkMessage chunk(int inicio) {
+		return ChunkMessage.builder().jobId("job").startRow(inicio).endRow(inicio + 9).build();
+	}
+
+	@Test
+	void elListenerSigueLeyendoMientrasSeEscribeElChunkAnterior() throws Exception {
+		crear(1, 4);
+		CountDownLatch escrituraTrabada = new CountDownLatch(1);
+		CountDownLatch escribiendo = new CountDownLatch(1);
+
+		CompletableFuture<PipelineChunks.Medicion> primero = pipeline.procesar(chunk(1),
+				(c, t) -> { },
+				(c, t) -> {
+					escribiendo.countDown();
+					escrituraTrabada.await();
+				});
+		assertTrue(escribiendo.await(5, TimeUnit.SECONDS));
+
+		// Con el primero trabado en la escritura, el segundo se prepara en este hilo y vuelve
+		boolean[] preparado = new boolean[1];
+		CompletableFuture<PipelineChunks.Medicion> segundo = pipeline.procesar(chunk(11),
+				(c, t) -> preparado[0] = true,
+				(c, t) -> { });
+		assertTrue(preparado[0]);
+		assertFalse(primero.isDone());
+		assertFalse(segundo.isDone());
+
+		escrituraTrabada.countDown();
+		primero.get(5, TimeUnit.SECONDS);
+		segundo.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void sinBuffersLibresElListenerEspera() throws Exception {
+		crear(1, 1);
+		CountDownLatch escrituraTrabada = new CountDownLatch(1);
+		CompletableFuture<PipelineChunks.Medicion> primero = pipeline.procesar(chunk(1),
+				(c, t) -> { },
+				(c, t) -> escrituraTrabada.await());
+
+		CompletableFuture<CompletableFuture<PipelineChunks.Medicion>> segundo = CompletableFuture.supplyAsync(
+				() -> pipeline.procesar(chunk(11), (c, t) -> { }, (c, t) -> { }));
+		assertThrows(TimeoutException.class, () -> segundo.get(200, TimeUnit.MILLISECONDS));
+
+		escrituraTrabada.countDown();
+		primero.get(5, TimeUnit.SECONDS);
+		segundo.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void losErroresLleganEnElFuturoYLiberanElBuffer() throws Exception {
+		crear(1, 1);
+
+		CompletableFuture<PipelineChunks.Medicion> lectura = pipeline.procesar(chunk(1),
+				(c, t) -> { throw new IOException("spill ilegible"); },
+				(c, t) -> fail("no debe escribir"));
+		ExecutionException e1 = assertThrows(ExecutionException.class, () -> lectura.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(IOException.class, PipelineChunks.causa(e1.getCause()));
+
+		CompletableFuture<PipelineChunks.Medicion> escritura = pipeline.procesar(chunk(11),
+				(c, t) -> { },
+				(c, t) -> { throw new IOException("sin conexión"); });
+		ExecutionException e2 = assertThrows(ExecutionException.class, () -> escritura.get(5, TimeUnit.SECONDS));
+		IOException causa = assertInstanceOf(IOException.class, PipelineChunks.causa(e2.getCause()));
+		assertEquals("sin conexión", causa.getMessage());
+
+		// Con un solo buffer, esto solo termina si los dos fallos lo devolvieron
+		assertEquals(0, pipeline.procesar(chunk(21), (c, t) -> { }, (c, t) -> { })
+				.get(5, TimeUnit.SECONDS).filas());
+	}
+}
@@ -0,0 +1,124 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura de un chunk con {@link EscritorBatch} (batch JDBC de upserts) contra
+ * {@link EscritorCopy} (COPY binario a staging y merge), sobre un Postgres real con el esquema
+ * de init-db.sql. Cada invocación inserta filas nuevas: las del periodo del benchmark se borran
+ * antes, fuera de la medición.
+ *
+ * Por defecto usa la base de docker-compose; otra base se indica con las variables
+ * BENCHMARK_DB_URL, BENCHMARK_DB_USER y BENCHMARK_DB_PASSWORD.
+ *
+ * <pre>
+ * docker compose up -d postgres
+ * mvn -Pjmh test-compile exec:exec -Djmh.argumentos=EscritorSueldosBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EscritorSueldosBenchmark {
+
+	// Periodo reservado para el benchmark: sus filas se borran en cada invocación
+	private static final String PERIODO = "2099-12";
+	private static final String JOB_ID = "00000000-0000-0000-0000-00000000be4c";
+
+	@Param({"batch", "copy"})
+	String escritor;
+
+	// Filas por chunk (chunk-size por defecto y un chunk grande)
+	@Param({"1000", "5000"})
+	int filas;
+
+	private HikariDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private EscritorSueldos escritorSueldos;
+	private SueldoChunk chunk;
+
+	@Setup
+	public void preparar() {
+		// Pool como en la aplicación: crear una partición usa una segunda conexión (REQUIRES_NEW)
+		dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl(variable("BENCHMARK_DB_URL", "jdbc:postgresql://localhost:5432/sueldos_db"));
+		dataSource.setUsername(variable("BENCHMARK_DB_USER", "admin"));
+		dataSource.setPassword(variable("BENCHMARK_DB_PASSWORD", "admin123"));
+		dataSource.setMaximumPoolSize(2);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+
+		ParticionService particionService = new ParticionService(transactionManager);
+		ReflectionTestUtils.setField(particionService, "jdbcTemplate", jdbcTemplate);
+
+		if ("copy".equals(escritor)) {
+			EscritorCopy copy = new EscritorCopy();
+			ReflectionTestUtils.setField(copy, "jdbcTemplate", jdbcTemplate);
+			ReflectionTestUtils.setField(copy, "transactionTemplate", transactionTemplate);
+			ReflectionTestUtils.setField(copy, "particionService", particionService);
+			ReflectionTestUtils.setField(copy, "modoMerge", "chunk");
+			escritorSueldos = copy;
+		} else {
+			EscritorBatch batch = new EscritorBatch();
+			ReflectionTestUtils.setField(batch, "jdbcTemplate", jdbcTemplate);
+			ReflectionTestUtils.setField(batch, "particionService", particionService);
+			escritorSueldos = batch;
+		}
+
+		chunk = new SueldoChunk(filas);
+		int fechaPago = (int) LocalDate.of(2099, 12, 31).toEpochDay();
+		for (int i = 0; i < filas; i++) {
+			long base = 1_500_000 + i;
+			chunk.agregar(i + 2, "BENCH" + i, "Empleado " + i, "Puesto " + (i % 20),
+					base, 20_000, 150_000, base + 20_000 - 150_000, PERIODO, fechaPago);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void borrarPeriodo() {
+		jdbcTemplate.update("DELETE FROM sueldos WHERE periodo_pago = ?", PERIODO);
+	}
+
+	@TearDown
+	public void terminar() {
+		borrarPeriodo();
+		dataSource.close();
+	}
+
+	@Benchmark
+	public Integer escribir() {
+		// Sin el proxy de Spring, la transacción de EscritorBatch.escribir se abre acá
+		return transactionTemplate.execute(status -> escritorSueldos.escribir(JOB_ID, chunk));
+	}
+
+	private static String variable(String nombre, String porDefecto) {
+		String valor = System.getenv(nombre);
+		return valor != null && !valor.isBlank() ? valor : porDefecto;
+	}
+}
@@ -0,0 +1,101 @@
+package com.tech.apicargamasiva.service;
+
+import com.tech.apicargamasiva.dto.ResultadoValidacion;
+import com.tech.apicargamasiva.dto.SueldoChunk;
+import com.tech.apicargamasiva.dto.SueldoDTO;
+import com.tech.apicargamasiva.util.Centavos;
+import jakarta.validation.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validación fila por fila con Bean Validation ({@link ValidacionService#validarSueldo}) contra
+ * la validación columnar del chunk ({@link ValidacionService#validarChunk}) sobre las mismas filas.
+ *
+ * <pre>mvn -Pjmh test-compile exec:exec -Djmh.argumentos=ValidacionServiceBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidacionServiceBenchmark {
+
+	// Filas por chunk (chunk-size por defecto y un chunk grande)
+	@Param({"1000", "5000"})
+	int filas;
+
+	// Una de cada N filas con el nombre en blanco; 0 = todas válidas
+	@Param({"0", "10"})
+	int cadaInvalida;
+
+	private ValidacionService validacionService;
+	private List<SueldoDTO> sueldos;
+	private SueldoChunk chunk;
+	private ResultadoValidacion resultado;
+
+	@Setup
+	public void preparar() {
+		validacionService = new ValidacionService();
+		sueldos = new ArrayList<>(filas);
+		chunk = new SueldoChunk(filas);
+		resultado = validacionService.nuevoResultado();
+
+		LocalDate fechaPago = LocalDate.of(2024, 3, 31);
+		for (int i = 0; i < filas; i++) {
+			String nombre = cadaInvalida > 0 && i % cadaInvalida == 0 ? " " : "Empleado " + i;
+			String puesto = "Puesto " + (i % 20);
+			long base = 1_500_000 + i;
+			long bonos = 20_000;
+			long deducciones = 150_000;
+			long neto = base + bonos - deducciones;
+
+			sueldos.add(SueldoDTO.builder()
+					.numeroEmpleado("EMP" + i)
+					.nombreCompleto(nombre)
+					.puesto(puesto)
+					.salarioBase(Centavos.aBigDecimal(base))
+					.bonos(Centavos.aBigDecimal(bonos))
+					.deducciones(Centavos.aBigDecimal(deducciones))
+					.salarioNeto(Centavos.aBigDecimal(neto))
+					.periodoPago("2024-03")
+					.fechaPago(fechaPago)
+					.build());
+			chunk.agregar(i + 2, "EMP" + i, nombre, puesto, base, bonos, deducciones, neto,
+					"2024-03", (int) fechaPago.toEpochDay());
+		}
+	}
+
+	@Benchmark
+	public int validarSueldo() {
+		int invalidas = 0;
+		for (SueldoDTO sueldo : sueldos) {
+			try {
+				validacionService.validarSueldo(sueldo);
+			} catch (ValidationException e) {
+				invalidas++;
+			}
+		}
+		return invalidas;
+	}
+
+	@Benchmark
+	public ResultadoValidacion validarChunk() {
+		return validacionService.validarChunk(chunk, resultado, null);
+	}
+}
@@ -0,0 +1,88 @@
+package com.tech.apicargamasiva.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CentavosTest {
+
+	@Test
+	void parseaDecimalesSimples() {
+		assertEquals(123456, Centavos.parsear("1234.56"));
+		assertEquals(100, Centavos.parsear("1"));
+		assertEquals(150, Centavos.parsear("1.5"));
+		assertEquals(-2550, Centavos.parsear("-25.50"));
+		assertEquals(0, Centavos.parsear("0"));
+		assertEquals(0, Centavos.parsear("0.00"));
+	}
+
+	@Test
+	void redondeaHalfUpSobreElTexto() {
+		assertEquals(2500050, Centavos.parsear("25000.499999999996"));
+		assertEquals(1, Centavos.parsear("0.005"));
+		assertEquals(0, Centavos.parsear("0.004"));
+		assertEquals(-1, Centavos.parsear("-0.005"));
+		assertEquals(1235, Centavos.parsear("12.345"));
+	}
+
+	@Test
+	void aceptaSeparadoresSimboloYEspacios() {
+		assertEquals(123456789, Centavos.parsear("1,234,567.89"));
+		assertEquals(100000, Centavos.parsear("$ 1,000"));
+		assertEquals(500, Centavos.parsear(" 5 "));
+		assertEquals(700, Centavos.parsear("+7"));
+	}
+
+	@Test
+	void aceptaNotacionExponencial() {
+		assertEquals(150000, Centavos.parsear("1.5E3"));
+		assertEquals(25, Centavos.parsear("2.5e-1"));
+		assertEquals(1200, Centavos.parsear("1.2E+1"));
+		assertEquals(0, Centavos.parsear("1E-30"));
+	}
+
+	@Test
+	void devuelveInvalidoParaTextoNoNumerico() {
+		assertEquals(Centavos.INVALIDO, Centavos.parsear((CharSequence) null));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear(""));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("abc"));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("1.2.3"));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("--1"));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("1-"));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("1E"));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("E5"));
+	}
+
+	@Test
+	void devuelveInvalidoSiNoCabeEnUnLong() {
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("99999999999999999999"));
+		assertEquals(Centavos.INVALIDO, Centavos.parsear("1E40"));
+	}
+
+	@Test
+	void parsearOCeroTomaLosInvalidosComoCero() {
+		assertEquals(0, Centavos.parsearOCero("no es un monto"));
+		assertEquals(0, Centavos.parsearOCero((CharSequence) null));
+		assertEquals(999, Centavos.parsearOCero("9.99"));
+	}
+
+	@Test
+	void parseaBytesIgualQueTexto() {
+		byte[] bytes = "x;1,234.565;y".getBytes(StandardCharsets.UTF_8);
+		assertEquals(123457, Centavos.parsear(bytes, 2, 11));
+		assertEquals(Centavos.parsear("1,234.565"), Centavos.parsear(bytes, 2, 11));
+		assertEquals(0, Centavos.parsearOCero(bytes, 0, 1));
+	}
+
+	@Test
+	void convierteDesdeYHaciaBigDecimal() {
+		assertEquals(101, Centavos.de(new BigDecimal("1.005")));
+		assertEquals(Centavos.INVALIDO, Centavos.de(null));
+		assertEquals(new BigDecimal("1234.56"), Centavos.aBigDecimal(123456));
+		assertNull(Centavos.aBigDecimal(Centavos.INVALIDO));
+	}
+}
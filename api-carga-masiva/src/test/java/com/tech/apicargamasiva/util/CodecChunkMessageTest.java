@@ -0,0 +1,96 @@
+package com.tech.apicargamasiva.util;
+
+import com.tech.apicargamasiva.dto.ChunkMessage;
+import com.tech.apicargamasiva.model.FormatoArchivo;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodecChunkMessageTest {
+
+	private static ChunkMessage chunk() {
+		return ChunkMessage.builder()
+				.jobId("7f3c9a1e-0b2d-4c5e-8f90-123456789abc")
+				.filePath("/tmp/uploads/nómina marzo.csv")
+				.spillPath("/tmp/uploads/7f3c.spill")
+				.formato(FormatoArchivo.TSV)
+				.startRow(5001)
+				.endRow(10000)
+				.userEmail("nomina@empresa.com")
+				.chunkNumber(2)
+				.totalChunks(40)
+				.build();
+	}
+
+	@Test
+	void idaYVueltaConservaTodosLosCampos() {
+		byte[] bytes = CodecChunkMessage.codificar(chunk());
+
+		assertTrue(CodecChunkMessage.esBinario(bytes));
+		assertEquals(CodecChunkMessage.VERSION, bytes[2]);
+		assertEquals(chunk(), CodecChunkMessage.decodificar(bytes));
+	}
+
+	@Test
+	void losCamposNulosNoSeEscribenYVuelvenNulos() {
+		ChunkMessage parcial = ChunkMessage.builder()
+				.jobId("job")
+				.startRow(1)
+				.endRow(10)
+				.build();
+
+		ChunkMessage leido = CodecChunkMessage.decodificar(CodecChunkMessage.codificar(parcial));
+
+		assertEquals(parcial, leido);
+		assertNull(leido.getSpillPath());
+		assertNull(leido.getFormato());
+		assertNull(leido.getTotalChunks());
+	}
+
+	@Test
+	void ignoraCamposDeUnaVersionMasNueva() {
+		byte[] bytes = CodecChunkMessage.codificar(chunk());
+		byte[] extra = "valor futuro".getBytes(StandardCharsets.UTF_8);
+
+		ByteBuffer conCampoNuevo = ByteBuffer.allocate(bytes.length + 5 + extra.length);
+		conCampoNuevo.put(bytes, 0, 3);
+		conCampoNuevo.put((byte) 99).putInt(extra.length).put(extra);
+		conCampoNuevo.put(bytes, 3, bytes.length - 3);
+
+		assertEquals(chunk(), CodecChunkMessage.decodificar(conCampoNuevo.array()));
+	}
+
+	@Test
+	void rechazaMensajesTruncados() {
+		byte[] bytes = CodecChunkMessage.codificar(chunk());
+
+		for (int largo : new int[]{bytes.length - 1, bytes.length - 4, 10, 4}) {
+			byte[] truncado = Arrays.copyOf(bytes, largo);
+			assertThrows(IllegalArgumentException.class, () -> CodecChunkMessage.decodificar(truncado));
+		}
+	}
+
+	@Test
+	void rechazaOtraVersion() {
+		byte[] bytes = CodecChunkMessage.codificar(chunk());
+		bytes[2] = (byte) (CodecChunkMessage.VERSION + 1);
+
+		assertThrows(IllegalArgumentException.class, () -> CodecChunkMessage.decodificar(bytes));
+	}
+
+	@Test
+	void unChunkEnJsonNoSeTomaComoBinario() {
+		byte[] json = "{\"jobId\":\"job\",\"startRow\":1}".getBytes(StandardCharsets.UTF_8);
+
+		assertFalse(CodecChunkMessage.esBinario(json));
+		assertThrows(IllegalArgumentException.class, () -> CodecChunkMessage.decodificar(json));
+	}
+}
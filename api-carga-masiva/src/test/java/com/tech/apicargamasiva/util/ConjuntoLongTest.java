@@ -0,0 +1,67 @@
+package com.tech.apicargamasiva.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConjuntoLongTest {
+
+	@Test
+	void agregarDevuelveFalseSiElValorYaEstaba() {
+		ConjuntoLong conjunto = new ConjuntoLong();
+		assertTrue(conjunto.agregar(42));
+		assertFalse(conjunto.agregar(42));
+		assertTrue(conjunto.agregar(-42));
+		assertEquals(2, conjunto.size());
+	}
+
+	@Test
+	void elCeroSeGuardaAparteDelSlotLibre() {
+		ConjuntoLong conjunto = new ConjuntoLong(4);
+		assertTrue(conjunto.agregar(0));
+		assertFalse(conjunto.agregar(0));
+		assertEquals(1, conjunto.size());
+	}
+
+	@Test
+	void conservaLosValoresAlCrecer() {
+		ConjuntoLong conjunto = new ConjuntoLong(4);
+		for (long i = 1; i <= 10_000; i++) {
+			assertTrue(conjunto.agregar(i * 0x9E3779B97F4A7C15L));
+		}
+		for (long i = 1; i <= 10_000; i++) {
+			assertFalse(conjunto.agregar(i * 0x9E3779B97F4A7C15L));
+		}
+		assertEquals(10_000, conjunto.size());
+	}
+
+	@Test
+	void limpiarVaciaElConjunto() {
+		ConjuntoLong conjunto = new ConjuntoLong();
+		conjunto.agregar(0);
+		conjunto.agregar(7);
+		conjunto.limpiar();
+		assertEquals(0, conjunto.size());
+		assertTrue(conjunto.agregar(0));
+		assertTrue(conjunto.agregar(7));
+	}
+
+	@Test
+	void hashParDeBytesCoincideConElDeTextoAscii() {
+		byte[] empleado = "E-001".getBytes(StandardCharsets.UTF_8);
+		byte[] periodo = "2024-01".getBytes(StandardCharsets.UTF_8);
+		assertEquals(ConjuntoLong.hashPar("E-001", "2024-01"),
+				ConjuntoLong.hashPar(empleado, 0, empleado.length, periodo, 0, periodo.length));
+	}
+
+	@Test
+	void hashParSeparaLosCampos() {
+		assertNotEquals(ConjuntoLong.hashPar("ab", "c"), ConjuntoLong.hashPar("a", "bc"));
+		assertNotEquals(ConjuntoLong.hashPar("a", "b"), ConjuntoLong.hashPar("b", "a"));
+	}
+}
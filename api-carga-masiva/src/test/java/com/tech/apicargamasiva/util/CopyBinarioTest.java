@@ -0,0 +1,123 @@
+package com.tech.apicargamasiva.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CopyBinarioTest {
+
+	@Test
+	void codificaNumericEnBase10000ConEscala2() {
+		ByteBuffer campo = campo(new CopyBinario().numeric(123456));
+
+		assertEquals(12, campo.remaining());
+		assertEquals(2, campo.getShort()); // dígitos
+		assertEquals(0, campo.getShort()); // peso
+		assertEquals(0x0000, campo.getShort()); // signo
+		assertEquals(2, campo.getShort()); // escala
+		assertEquals(1234, campo.getShort());
+		assertEquals(5600, campo.getShort());
+	}
+
+	@Test
+	void numericConservaElValor() {
+		long[] casos = {0, 1, 5, 99, 100, 123456, 1_000_000, 100_000_000, 100_000_001, 2_500_050,
+				-2550, -1, 999_999_999_999L, -999_999_999_999L};
+		for (long centavos : casos) {
+			assertEquals(BigDecimal.valueOf(centavos, 2), numeric(new CopyBinario().numeric(centavos)),
+					"centavos " + centavos);
+		}
+	}
+
+	@Test
+	void numericCeroEsPositivoYSinDigitos() {
+		ByteBuffer campo = campo(new CopyBinario().numeric(0));
+
+		assertEquals(8, campo.remaining());
+		assertEquals(0, campo.getShort());
+		assertEquals(0, campo.getShort());
+		assertEquals(0x0000, campo.getShort());
+		assertEquals(2, campo.getShort());
+	}
+
+	@Test
+	void numericNegativoLlevaElSigno() {
+		ByteBuffer campo = campo(new CopyBinario().numeric(-5));
+
+		assertEquals(1, campo.getShort());
+		assertEquals(-1, campo.getShort());
+		assertEquals(0x4000, campo.getShort());
+		assertEquals(2, campo.getShort());
+		assertEquals(500, campo.getShort());
+	}
+
+	@Test
+	void montoInvalidoSeEscribeComoNulo() {
+		assertNull(campo(new CopyBinario().numeric(Centavos.INVALIDO)));
+	}
+
+	@Test
+	void fechaSeCuentaDesde2000() {
+		assertEquals(0, fecha(LocalDate.of(2000, 1, 1)));
+		assertEquals(-10_957, fecha(LocalDate.of(1970, 1, 1)));
+		assertEquals(8_825, fecha(LocalDate.of(2024, 2, 29)));
+		assertEquals(-1, fecha(LocalDate.of(1999, 12, 31)));
+	}
+
+	@Test
+	void cabeceraYTrailerDelFormato() {
+		CopyBinario copy = new CopyBinario(4).cabecera().fin();
+		byte[] bytes = Arrays.copyOf(copy.getBytes(), copy.size());
+
+		assertArrayEquals(new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+				0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF}, bytes);
+	}
+
+	private static int fecha(LocalDate dia) {
+		ByteBuffer campo = campo(new CopyBinario().fecha((int) dia.toEpochDay()));
+		assertEquals(4, campo.remaining());
+		return campo.getInt();
+	}
+
+	/**
+	 * Contenido del único campo escrito, o null si es NULL.
+	 */
+	private static ByteBuffer campo(CopyBinario copy) {
+		ByteBuffer buffer = ByteBuffer.wrap(copy.getBytes(), 0, copy.size());
+		int longitud = buffer.getInt();
+		if (longitud < 0) {
+			return null;
+		}
+		assertEquals(longitud, buffer.remaining());
+		return buffer.slice();
+	}
+
+	/**
+	 * Decodifica un NUMERIC binario como lo hace PostgreSQL (numeric_recv).
+	 */
+	private static BigDecimal numeric(CopyBinario copy) {
+		ByteBuffer campo = campo(copy);
+		int digitos = campo.getShort();
+		int peso = campo.getShort();
+		int signo = campo.getShort() & 0xFFFF;
+		int escala = campo.getShort();
+
+		BigInteger valor = BigInteger.ZERO;
+		for (int i = 0; i < digitos; i++) {
+			valor = valor.multiply(BigInteger.valueOf(10_000)).add(BigInteger.valueOf(campo.getShort()));
+		}
+		BigDecimal resultado = new BigDecimal(valor).scaleByPowerOfTen(4 * (peso - digitos + 1));
+		if (signo == 0x4000) {
+			resultado = resultado.negate();
+		}
+		return resultado.setScale(escala);
+	}
+}
@@ -0,0 +1,58 @@
+package com.tech.apicargamasiva.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndiceFilasTest {
+
+	@TempDir
+	Path directorio;
+
+	private Path indiceDe(long... offsets) throws IOException {
+		Path ruta = directorio.resolve("datos.idx");
+		try (IndiceFilas.Escritor escritor = IndiceFilas.escritor(ruta)) {
+			for (int i = 0; i < offsets.length - 1; i++) {
+				escritor.agregar(offsets[i]);
+			}
+			escritor.cerrar(offsets[offsets.length - 1]);
+			assertEquals(offsets.length - 1, escritor.getFilas());
+		}
+		return ruta;
+	}
+
+	@Test
+	void cuentaLasFilasIndexadas() throws IOException {
+		assertEquals(3, IndiceFilas.contarFilas(indiceDe(0, 10, 25, 40)));
+		assertEquals(0, IndiceFilas.contarFilas(indiceDe(0)));
+	}
+
+	@Test
+	void traduceUnRangoDeFilasABytes() throws IOException {
+		IndiceFilas.Rango rango = IndiceFilas.rango(indiceDe(0, 10, 25, 40), 0, 1);
+		assertEquals(0, rango.inicio());
+		assertEquals(25, rango.fin());
+		assertEquals(25, rango.longitud());
+		assertEquals(2, rango.filas());
+	}
+
+	@Test
+	void recortaElRangoAlFinalDelIndice() throws IOException {
+		IndiceFilas.Rango rango = IndiceFilas.rango(indiceDe(0, 10, 25, 40), 1, 99);
+		assertEquals(10, rango.inicio());
+		assertEquals(40, rango.fin());
+		assertEquals(2, rango.filas());
+	}
+
+	@Test
+	void rangoFueraDelIndiceEstaVacio() throws IOException {
+		Path ruta = indiceDe(0, 10, 25, 40);
+		assertEquals(0, IndiceFilas.rango(ruta, 3, 5).filas());
+		assertEquals(0, IndiceFilas.rango(ruta, -1, 2).filas());
+		assertEquals(0, IndiceFilas.rango(ruta, 2, 1).filas());
+	}
+}
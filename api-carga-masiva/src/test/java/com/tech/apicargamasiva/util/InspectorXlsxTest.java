@@ -0,0 +1,99 @@
+package com.tech.apicargamasiva.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InspectorXlsxTest {
+
+	private static final String WORKBOOK = """
+			<workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main"
+					  xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">
+			  <sheets><sheet name="Sueldos" sheetId="1" r:id="rId7"/></sheets>
+			</workbook>""";
+
+	private static final String RELACIONES = """
+			<Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+			  <Relationship Id="rId1" Target="styles.xml"/>
+			  <Relationship Id="rId7" Target="worksheets/hoja.xml"/>
+			</Relationships>""";
+
+	private static final String SHARED_STRINGS = """
+			<sst xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">
+			  <si><t>Numero Empleado</t></si>
+			  <si><r><t>Nombre </t></r><r><t>Completo</t></r><rPh><t>ignorado</t></rPh></si>
+			  <si><t>otro</t></si>
+			</sst>""";
+
+	@TempDir
+	Path directorio;
+
+	@Test
+	void leeLaDimensionYLaPrimeraFila() throws IOException {
+		Path xlsx = crearXlsx("""
+				<worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">
+				  <dimension ref="A1:C5001"/>
+				  <sheetData>
+					<row r="1">
+					  <c r="A1" t="s"><v>0</v></c>
+					  <c r="B1" t="s"><v>1</v></c>
+					  <c r="C1" t="inlineStr"><is><t>Puesto</t></is></c>
+					</row>
+					<row r="2"><c r="A2"><v>1</v></c></row>
+				  </sheetData>
+				</worksheet>""");
+
+		InspectorXlsx.Resumen resumen = InspectorXlsx.inspeccionar(xlsx, 4);
+
+		assertEquals(5000, resumen.ultimaFila());
+		assertArrayEquals(new String[]{"Numero Empleado", "Nombre Completo", "Puesto", null},
+				resumen.primeraFila());
+	}
+
+	@Test
+	void sinDimensionCuentaLasFilas() throws IOException {
+		Path xlsx = crearXlsx("""
+				<worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">
+				  <sheetData>
+					<row r="1"><c r="B1" t="inlineStr"><is><t>Encabezado</t></is></c></row>
+					<row r="2"><c r="A2"><v>1</v></c></row>
+					<row r="3"><c r="A3"><v>2</v></c></row>
+				  </sheetData>
+				</worksheet>""");
+
+		InspectorXlsx.Resumen resumen = InspectorXlsx.inspeccionar(xlsx, 2);
+
+		assertEquals(2, resumen.ultimaFila());
+		assertNull(resumen.primeraFila()[0]);
+		assertEquals("Encabezado", resumen.primeraFila()[1]);
+	}
+
+	private Path crearXlsx(String hoja) throws IOException {
+		Path xlsx = directorio.resolve("sueldos.xlsx");
+		try (OutputStream archivo = Files.newOutputStream(xlsx);
+			 ZipOutputStream zip = new ZipOutputStream(archivo)) {
+			agregar(zip, "xl/workbook.xml", WORKBOOK);
+			agregar(zip, "xl/_rels/workbook.xml.rels", RELACIONES);
+			agregar(zip, "xl/sharedStrings.xml", SHARED_STRINGS);
+			agregar(zip, "xl/worksheets/hoja.xml", hoja);
+		}
+		return xlsx;
+	}
+
+	private static void agregar(ZipOutputStream zip, String nombre, String contenido) throws IOException {
+		zip.putNextEntry(new ZipEntry(nombre));
+		zip.write(contenido.getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+	}
+}
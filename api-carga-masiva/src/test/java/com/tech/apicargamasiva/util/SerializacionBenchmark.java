@@ -0,0 +1,139 @@
+package com.tech.apicargamasiva.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tech.apicargamasiva.dto.ChunkMessage;
+import com.tech.apicargamasiva.model.FormatoArchivo;
+import com.tech.apicargamasiva.model.ImportacionJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codificación binaria contra JSON para los dos objetos que más viajan: ChunkMessage por
+ * RabbitMQ ({@link CodecChunkMessage} contra el ObjectMapper de RabbitMQConfig) e
+ * ImportacionJob en Redis ({@link SerializadorRedisCbor} en CBOR y en JSON). El tamaño de
+ * cada codificación se imprime al preparar el benchmark.
+ *
+ * <pre>mvn -Pjmh test-compile exec:exec -Djmh.argumentos=SerializacionBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+	private ObjectMapper json;
+	private SerializadorRedisCbor redisCbor;
+	private SerializadorRedisCbor redisJson;
+
+	private ChunkMessage chunk;
+	private byte[] chunkBinario;
+	private byte[] chunkJson;
+
+	private ImportacionJob job;
+	private byte[] jobCbor;
+	private byte[] jobJson;
+
+	@Setup
+	public void preparar() throws IOException {
+		// Igual que RabbitMQConfig.objectMapper y RedisConfig.redisObjectMapper
+		json = new ObjectMapper();
+		json.registerModule(new JavaTimeModule());
+		json.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		json.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+		redisCbor = new SerializadorRedisCbor(json, true);
+		redisJson = new SerializadorRedisCbor(json, false);
+
+		chunk = ChunkMessage.builder()
+				.jobId("7f3c9a1e-0b2d-4c5e-8f90-123456789abc")
+				.filePath("/tmp/uploads/7f3c9a1e-0b2d-4c5e-8f90-123456789abc_sueldos_marzo.xlsx")
+				.spillPath("/tmp/uploads/7f3c9a1e-0b2d-4c5e-8f90-123456789abc.spill")
+				.formato(FormatoArchivo.EXCEL)
+				.startRow(5001)
+				.endRow(10000)
+				.userEmail("nomina@empresa.com")
+				.chunkNumber(2)
+				.totalChunks(40)
+				.build();
+		chunkBinario = CodecChunkMessage.codificar(chunk);
+		chunkJson = json.writeValueAsBytes(chunk);
+
+		LocalDateTime inicio = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+		job = ImportacionJob.builder()
+				.id("7f3c9a1e-0b2d-4c5e-8f90-123456789abc")
+				.filename("sueldos_marzo.xlsx")
+				.userEmail("nomina@empresa.com")
+				.status(ImportacionJob.JobStatus.EN_PROCESO)
+				.totalRegistros(200_000)
+				.procesados(50_000)
+				.exitosos(49_870)
+				.errores(130)
+				.fileSizeBytes(18_432_512L)
+				.filePath("/tmp/uploads/7f3c9a1e-0b2d-4c5e-8f90-123456789abc_sueldos_marzo.xlsx")
+				.createdAt(inicio)
+				.updatedAt(inicio.plusMinutes(2))
+				.startedProcessingAt(inicio.plusSeconds(5))
+				.version(42L)
+				.build();
+		jobCbor = redisCbor.serialize(job);
+		jobJson = redisJson.serialize(job);
+
+		System.out.printf("ChunkMessage: binario %d bytes, JSON %d bytes%n", chunkBinario.length, chunkJson.length);
+		System.out.printf("ImportacionJob: CBOR %d bytes, JSON %d bytes%n", jobCbor.length, jobJson.length);
+	}
+
+	@Benchmark
+	public byte[] codificarChunkBinario() {
+		return CodecChunkMessage.codificar(chunk);
+	}
+
+	@Benchmark
+	public byte[] codificarChunkJson() throws IOException {
+		return json.writeValueAsBytes(chunk);
+	}
+
+	@Benchmark
+	public ChunkMessage decodificarChunkBinario() {
+		return CodecChunkMessage.decodificar(chunkBinario);
+	}
+
+	@Benchmark
+	public ChunkMessage decodificarChunkJson() throws IOException {
+		return json.readValue(chunkJson, ChunkMessage.class);
+	}
+
+	@Benchmark
+	public byte[] serializarJobCbor() {
+		return redisCbor.serialize(job);
+	}
+
+	@Benchmark
+	public byte[] serializarJobJson() {
+		return redisJson.serialize(job);
+	}
+
+	@Benchmark
+	public Object deserializarJobCbor() {
+		return redisCbor.deserialize(jobCbor);
+	}
+
+	@Benchmark
+	public Object deserializarJobJson() {
+		return redisJson.deserialize(jobJson);
+	}
+}
@@ -0,0 +1,109 @@
+package com.tech.apicargamasiva.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tech.apicargamasiva.dto.JobStatusDTO;
+import com.tech.apicargamasiva.model.ImportacionJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SerializadorRedisCborTest {
+
+	// Igual que RedisConfig.redisObjectMapper
+	private static ObjectMapper mapper() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.registerModule(new JavaTimeModule());
+		mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+		return mapper;
+	}
+
+	private static JobStatusDTO estado() {
+		return JobStatusDTO.builder()
+				.jobId("7f3c9a1e-0b2d-4c5e-8f90-123456789abc")
+				.filename("sueldos.xlsx")
+				.userEmail("nomina@empresa.com")
+				.status(ImportacionJob.JobStatus.EN_PROCESO)
+				.totalRegistros(1000)
+				.procesados(250)
+				.exitosos(240)
+				.errores(10)
+				.progreso(25.0)
+				.createdAt(LocalDateTime.of(2024, 3, 1, 10, 15, 30))
+				.updatedAt(LocalDateTime.of(2024, 3, 1, 10, 16, 0))
+				.build();
+	}
+
+	@Test
+	void idaYVueltaEnCborConservaElTipo() {
+		SerializadorRedisCbor serializador = new SerializadorRedisCbor(mapper(), true);
+
+		byte[] bytes = serializador.serialize(estado());
+
+		assertEquals((byte) 0xCB, bytes[0]);
+		assertEquals(estado(), serializador.deserialize(bytes));
+	}
+
+	@Test
+	void idaYVueltaDeUnMapa() {
+		SerializadorRedisCbor serializador = new SerializadorRedisCbor(mapper(), true);
+		Map<String, Object> valor = new HashMap<>();
+		valor.put("procesados", 42);
+		valor.put("estado", "EN_PROCESO");
+
+		assertEquals(valor, serializador.deserialize(serializador.serialize(valor)));
+	}
+
+	@Test
+	void leeElJsonQueEscribiaLaVersionAnterior() {
+		GenericJackson2JsonRedisSerializer anterior = new GenericJackson2JsonRedisSerializer(mapper());
+		byte[] json = anterior.serialize(estado());
+
+		Object leido = new SerializadorRedisCbor(mapper(), true).deserialize(json);
+
+		assertEquals(anterior.deserialize(json), leido);
+		Map<?, ?> mapa = assertInstanceOf(Map.class, leido);
+		assertEquals("7f3c9a1e-0b2d-4c5e-8f90-123456789abc", mapa.get("jobId"));
+	}
+
+	@Test
+	void sinCborEscribeElMismoJsonQueLaVersionAnterior() {
+		GenericJackson2JsonRedisSerializer anterior = new GenericJackson2JsonRedisSerializer(mapper());
+		SerializadorRedisCbor serializador = new SerializadorRedisCbor(mapper(), false);
+
+		byte[] bytes = serializador.serialize(estado());
+
+		assertEquals('{', bytes[0]);
+		assertEquals(anterior.deserialize(anterior.serialize(estado())), anterior.deserialize(bytes));
+		assertEquals(anterior.deserialize(bytes), serializador.deserialize(bytes));
+	}
+
+	@Test
+	void nuloYVacio() {
+		SerializadorRedisCbor serializador = new SerializadorRedisCbor(mapper(), true);
+
+		assertEquals(0, serializador.serialize(null).length);
+		assertNull(serializador.deserialize(null));
+		assertNull(serializador.deserialize(new byte[0]));
+	}
+
+	@Test
+	void rechazaOtraVersionDeCbor() {
+		SerializadorRedisCbor serializador = new SerializadorRedisCbor(mapper(), true);
+		byte[] bytes = serializador.serialize(estado());
+		bytes[2] = (byte) (bytes[2] + 1);
+
+		assertThrows(SerializationException.class, () -> serializador.deserialize(bytes));
+	}
+}
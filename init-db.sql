@@ -1,6 +1,7 @@
--- Tabla de Sueldos
+-- Tabla de Sueldos, particionada por periodo de pago. La aplicación crea una partición
+-- sueldos_AAAA_MM la primera vez que llega cada periodo; el resto cae en sueldos_default.
 CREATE TABLE IF NOT EXISTS sueldos (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     numero_empleado VARCHAR(50) NOT NULL,
     nombre_completo VARCHAR(200) NOT NULL,
     puesto VARCHAR(100) NOT NULL,
@@ -12,12 +13,15 @@ CREATE TABLE IF NOT EXISTS sueldos (
     fecha_pago DATE NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, periodo_pago),
     CONSTRAINT unique_empleado_periodo UNIQUE (numero_empleado, periodo_pago)
-);
+) PARTITION BY LIST (periodo_pago);
+
+CREATE TABLE IF NOT EXISTS sueldos_default PARTITION OF sueldos DEFAULT;
 
 CREATE INDEX idx_sueldos_empleado ON sueldos(numero_empleado);
 CREATE INDEX idx_sueldos_fecha ON sueldos(fecha_pago);
-CREATE INDEX idx_sueldos_periodo ON sueldos(periodo_pago);
+-- Sin índice por periodo_pago: las consultas por periodo se resuelven eligiendo la partición
 
 -- Tabla de Jobs de Importación
 CREATE TABLE IF NOT EXISTS importacion_jobs (
@@ -46,9 +50,16 @@ CREATE TABLE IF NOT EXISTS importacion_errores (
     row_number INTEGER NOT NULL,
     numero_empleado VARCHAR(50),
     error_message TEXT NOT NULL,
+    error_type VARCHAR(50),
     raw_data JSONB,
+    retryable BOOLEAN DEFAULT FALSE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (job_id) REFERENCES importacion_jobs(id) ON DELETE CASCADE
 );
 
-CREATE INDEX idx_errores_job ON importacion_errores(job_id);
\ No newline at end of file
+-- Un error por fila: un chunk reenviado o reentregado no duplica errores (ON CONFLICT DO NOTHING).
+-- En una base existente, antes de crearlo:
+--   DELETE FROM importacion_errores a USING importacion_errores b
+--    WHERE a.job_id = b.job_id AND a.row_number = b.row_number AND a.id > b.id;
+--   DROP INDEX IF EXISTS idx_errores_job;
+CREATE UNIQUE INDEX idx_errores_job_fila ON importacion_errores(job_id, row_number);
\ No newline at end of file